@@ -0,0 +1,159 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 修复核心的微基准测试
+ * <p>
+ * 使用不发送任何数据包的执行器，只测量接收、合并、调度、统计和查表本身的开销。
+ * 配合 {@code -Pjmh.profilers=gc} 可以确认稳态下每个修复不分配对象。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixPipelineBenchmark {
+    
+    /** 同一刻内触发修复的玩家数 */
+    @Param({"1", "10", "100", "1000"})
+    int players;
+    
+    private FixScheduler scheduler;
+    private UUID[] ids;
+    private String[] names;
+    private long tick;
+    
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private int[] totals;
+    private long[] latencies;
+    private int cursor;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduler = new FixScheduler(new NoOpExecutor(), new FixStatistics(), players);
+        ids = new UUID[players];
+        names = new String[players];
+        for (int i = 0; i < players; i++) {
+            ids[i] = new UUID(0x5EEDL, i);
+            names[i] = "player" + i;
+            scheduler.playerJoined(ids[i], names[i], 0L, null);
+        }
+        
+        // 预先生成的输入，避免把随机数生成计入测量
+        Random random = new Random(42);
+        totals = new int[1024];
+        latencies = new long[1024];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = random.nextInt(XpCurve.totalForLevel(100));
+            latencies[i] = (long) (Math.exp(random.nextGaussian() * 2 + 14));
+        }
+    }
+    
+    /**
+     * 每名玩家触发一次，下一刻批量执行
+     */
+    @Benchmark
+    public int triggerAndDispatch() {
+        long now = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            scheduler.requestFix(ids[i], names[i], TriggerSource.TELEPORT_COMMAND, tick, 1, now);
+        }
+        tick++;
+        return scheduler.advance(tick).count();
+    }
+    
+    /**
+     * 每名玩家在同一刻内连续触发四次（例如传送、维度变化、重生叠加），只执行一次修复
+     */
+    @Benchmark
+    public int mergeStorm() {
+        long now = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            scheduler.requestFix(ids[i], names[i], TriggerSource.TELEPORT_COMMAND, tick, 1, now);
+            scheduler.requestFix(ids[i], names[i], TriggerSource.ENTITY_TELEPORT, tick, 1, now);
+            scheduler.requestFix(ids[i], names[i], TriggerSource.DIMENSION_CHANGE, tick, 1, now);
+            scheduler.requestFix(ids[i], names[i], TriggerSource.RESPAWN, tick, 1, now);
+        }
+        tick++;
+        return scheduler.advance(tick).count();
+    }
+    
+    /**
+     * 空刻的推进开销，服务器每刻都要付出
+     */
+    @Benchmark
+    public int idleTick() {
+        tick++;
+        return scheduler.advance(tick).count();
+    }
+    
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(latencies[cursor++ & (latencies.length - 1)]);
+    }
+    
+    @Benchmark
+    public void xpCurveLookup(Blackhole blackhole) {
+        int total = totals[cursor++ & (totals.length - 1)];
+        blackhole.consume(XpCurve.levelForTotal(total));
+        blackhole.consume(XpCurve.progressForTotal(total));
+    }
+    
+    /**
+     * 不做任何游戏操作的执行器，所有修复都按主要方法成功计
+     */
+    private static final class NoOpExecutor implements FixExecutor {
+        
+        @Override
+        public long packetBaseline(Object attachment) {
+            return 0L;
+        }
+        
+        @Override
+        public int execute(UUID playerId, int sources, Object attachment, long packetBaseline, FixTrace trace) {
+            trace.markBuilt();
+            trace.markHanded();
+            return FixResult.PRIMARY;
+        }
+        
+        @Override
+        public void finishBatch() {
+        }
+    }
+}
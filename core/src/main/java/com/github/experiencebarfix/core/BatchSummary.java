@@ -0,0 +1,98 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * 一个游戏刻内批量修复的汇总
+ * <p>
+ * 由 {@link FixScheduler#advance(long)} 复用同一个实例返回，只在下一次推进之前有效。
+ */
+public final class BatchSummary {
+    
+    int count;
+    int succeeded;
+    int primary;
+    int fallback;
+    int suppressed;
+    long durationNanos;
+    long totalLatencyNanos;
+    int deferred;
+    
+    BatchSummary() {
+    }
+    
+    void reset() {
+        count = 0;
+        succeeded = 0;
+        primary = 0;
+        fallback = 0;
+        suppressed = 0;
+        durationNanos = 0L;
+        totalLatencyNanos = 0L;
+        deferred = 0;
+    }
+    
+    /**
+     * 本刻执行的修复数量
+     */
+    public int count() {
+        return count;
+    }
+    
+    public int succeeded() {
+        return succeeded;
+    }
+    
+    public int failed() {
+        return count - succeeded;
+    }
+    
+    public int primary() {
+        return primary;
+    }
+    
+    public int fallback() {
+        return fallback;
+    }
+    
+    public int suppressed() {
+        return suppressed;
+    }
+    
+    /**
+     * 本刻预算用完后留到之后执行的修复数量
+     */
+    public int deferred() {
+        return deferred;
+    }
+    
+    /**
+     * 执行整批修复所用的时间
+     */
+    public long durationNanos() {
+        return durationNanos;
+    }
+    
+    /**
+     * 本批次各修复从触发到完成的耗时之和
+     */
+    public long totalLatencyNanos() {
+        return totalLatencyNanos;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 固定布局的计数器文件
+ * <p>
+ * 计数器以 64 位小端整数保存在内存映射的文件中，通过 {@link VarHandle} 原地原子更新，
+ * 不加锁也不做系统调用；进程崩溃时已写入的值仍保留在操作系统的页缓存中，
+ * 定期的 {@link #checkpoint()} 再把它们刷到磁盘。外部工具可以随时只读打开文件查看实时数值。
+ * <p>
+ * 文件布局（所有整数均为小端）：
+ * <pre>
+ *  0  int   魔数 0x58504658 ("XPFX")
+ *  4  int   版本号 1
+ *  8  int   计数器数量 n
+ * 12  int   名称表偏移
+ * 16  int   名称表长度（字节）
+ * 20  int   状态：1 = 正在使用，0 = 已正常关闭
+ * 24  long  创建时间（毫秒）
+ * 32  long  最近一次检查点时间（毫秒）
+ * 40  long  打开次数（服务器启动次数）
+ * 48  long  当前写入进程的 PID
+ * 56  long  保留
+ * 64  long[n]  计数器
+ * ..  UTF-8    计数器名称，以换行分隔，顺序与计数器相同
+ * </pre>
+ * 布局变化时按名称迁移已有的数值，未知版本的文件会被改名保留后重新创建。
+ */
+public final class CounterFile {
+    
+    public static final int MAGIC = 0x58504658;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_COUNT = 8;
+    private static final int OFFSET_NAMES = 12;
+    private static final int OFFSET_NAMES_LENGTH = 16;
+    private static final int OFFSET_STATE = 20;
+    private static final int OFFSET_CREATED = 24;
+    private static final int OFFSET_CHECKPOINT = 32;
+    private static final int OFFSET_OPENS = 40;
+    private static final int OFFSET_PID = 48;
+    
+    private static final int STATE_CLOSED = 0;
+    private static final int STATE_OPEN = 1;
+    
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    
+    private final ByteBuffer buffer;
+    private final Path path;
+    private final int count;
+    private final boolean uncleanShutdown;
+    private final String notice;
+    private boolean closed;
+    
+    private CounterFile(ByteBuffer buffer, Path path, int count, boolean uncleanShutdown, String notice) {
+        this.buffer = buffer;
+        this.path = path;
+        this.count = count;
+        this.uncleanShutdown = uncleanShutdown;
+        this.notice = notice;
+    }
+    
+    /**
+     * 创建只在内存中的计数器，不持久化，用于服务器运行之外或文件不可用时
+     */
+    public static CounterFile inMemory(String[] names) {
+        byte[] nameTable = nameTable(names);
+        int size = HEADER_BYTES + names.length * Long.BYTES + nameTable.length;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size + Long.BYTES).alignedSlice(Long.BYTES);
+        writeHeader(buffer, names.length, nameTable, System.currentTimeMillis());
+        return new CounterFile(buffer, null, names.length, false, null);
+    }
+    
+    /**
+     * 打开或创建计数器文件并映射到内存
+     * <p>
+     * 已有文件的计数器名称与 {@code names} 不同时按名称迁移数值；
+     * 文件损坏或版本未知时改名保留并创建新文件，原因可从 {@link #notice()} 取得。
+     */
+    public static CounterFile open(Path path, String[] names) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        byte[] nameTable = nameTable(names);
+        long now = System.currentTimeMillis();
+        
+        String notice = null;
+        Map<String, Long> migrated = null;
+        long created = now;
+        long opens = 0;
+        boolean unclean = false;
+        
+        if (Files.exists(path)) {
+            ByteBuffer existing = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            if (!isValid(existing)) {
+                Path backup = path.resolveSibling(path.getFileName() + ".invalid-" + now);
+                Files.move(path, backup, StandardCopyOption.REPLACE_EXISTING);
+                notice = "计数器文件无法识别，已改名为 " + backup.getFileName() + " 并重新创建";
+            } else {
+                created = existing.getLong(OFFSET_CREATED);
+                opens = existing.getLong(OFFSET_OPENS);
+                unclean = existing.getInt(OFFSET_STATE) == STATE_OPEN;
+                if (!Arrays.equals(readNameTable(existing), nameTable)) {
+                    migrated = readValues(existing);
+                    notice = "计数器布局已变化，已按名称迁移 " + migrated.size() + " 个计数器";
+                }
+            }
+        }
+        
+        if (!Files.exists(path) || migrated != null) {
+            // 先写入临时文件再替换，迁移中途崩溃不会留下半个文件
+            int size = HEADER_BYTES + names.length * Long.BYTES + nameTable.length;
+            ByteBuffer fresh = ByteBuffer.allocate(size);
+            writeHeader(fresh, names.length, nameTable, created);
+            fresh.putLong(OFFSET_OPENS, opens);
+            if (migrated != null) {
+                for (int i = 0; i < names.length; i++) {
+                    fresh.putLong(HEADER_BYTES + i * Long.BYTES, migrated.getOrDefault(names[i], 0L));
+                }
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, fresh.array());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putLong(OFFSET_OPENS, mapped.getLong(OFFSET_OPENS) + 1);
+        mapped.putLong(OFFSET_PID, ProcessHandle.current().pid());
+        mapped.putInt(OFFSET_STATE, STATE_OPEN);
+        mapped.force();
+        return new CounterFile(mapped, path, names.length, unclean, notice);
+    }
+    
+    /**
+     * 只读取文件中的计数器名称和数值，不修改文件，可在服务器运行时使用
+     */
+    public static Map<String, Long> read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (!isValid(buffer)) {
+            throw new IOException("不是有效的计数器文件: " + path);
+        }
+        return readValues(buffer);
+    }
+    
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_BYTES
+                || buffer.getInt(OFFSET_MAGIC) != MAGIC
+                || buffer.getInt(OFFSET_VERSION) != VERSION) {
+            return false;
+        }
+        long count = buffer.getInt(OFFSET_COUNT);
+        long namesOffset = buffer.getInt(OFFSET_NAMES);
+        long namesLength = buffer.getInt(OFFSET_NAMES_LENGTH);
+        return count >= 0 && namesOffset == HEADER_BYTES + count * Long.BYTES 
+            && namesLength >= 0 && namesOffset + namesLength <= buffer.limit();
+    }
+    
+    private static byte[] nameTable(String[] names) {
+        return String.join("\n", names).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] readNameTable(ByteBuffer buffer) {
+        byte[] table = new byte[buffer.getInt(OFFSET_NAMES_LENGTH)];
+        buffer.get(buffer.getInt(OFFSET_NAMES), table);
+        return table;
+    }
+    
+    private static Map<String, Long> readValues(ByteBuffer buffer) {
+        int count = buffer.getInt(OFFSET_COUNT);
+        String table = new String(readNameTable(buffer), StandardCharsets.UTF_8);
+        String[] names = table.isEmpty() ? new String[0] : table.split("\n", -1);
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(count, names.length); i++) {
+            values.put(names[i], buffer.getLong(HEADER_BYTES + i * Long.BYTES));
+        }
+        return values;
+    }
+    
+    private static void writeHeader(ByteBuffer buffer, int count, byte[] nameTable, long created) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putInt(OFFSET_COUNT, count);
+        buffer.putInt(OFFSET_NAMES, HEADER_BYTES + count * Long.BYTES);
+        buffer.putInt(OFFSET_NAMES_LENGTH, nameTable.length);
+        buffer.putInt(OFFSET_STATE, STATE_CLOSED);
+        buffer.putLong(OFFSET_CREATED, created);
+        buffer.putLong(OFFSET_CHECKPOINT, created);
+        buffer.put(HEADER_BYTES + count * Long.BYTES, nameTable);
+    }
+    
+    // ---- 计数器 ----
+    
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * Long.BYTES;
+    }
+    
+    public long get(int slot) {
+        return (long) LONGS.getVolatile(buffer, offset(slot));
+    }
+    
+    public void add(int slot, long delta) {
+        LONGS.getAndAdd(buffer, offset(slot), delta);
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    // ---- 文件状态 ----
+    
+    /**
+     * 把计数器刷到磁盘并更新检查点时间，由后台线程定期调用
+     */
+    public synchronized void checkpoint() {
+        if (closed) {
+            return;
+        }
+        LONGS.setVolatile(buffer, OFFSET_CHECKPOINT, System.currentTimeMillis());
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+    
+    /**
+     * 标记为正常关闭并刷到磁盘，之后的更新只留在内存中
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        INTS.setVolatile(buffer, OFFSET_STATE, STATE_CLOSED);
+        LONGS.setVolatile(buffer, OFFSET_CHECKPOINT, System.currentTimeMillis());
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+        closed = true;
+    }
+    
+    /**
+     * 文件路径，只在内存中时为 null
+     */
+    public Path path() {
+        return path;
+    }
+    
+    /**
+     * 包括本次在内的打开次数
+     */
+    public long opens() {
+        return (long) LONGS.getVolatile(buffer, OFFSET_OPENS);
+    }
+    
+    public long createdMillis() {
+        return (long) LONGS.getVolatile(buffer, OFFSET_CREATED);
+    }
+    
+    public long checkpointMillis() {
+        return (long) LONGS.getVolatile(buffer, OFFSET_CHECKPOINT);
+    }
+    
+    /**
+     * 上一次使用后是否没有正常关闭，例如服务器崩溃；此时数值可能停在最后一次检查点之后的某处
+     */
+    public boolean uncleanShutdown() {
+        return uncleanShutdown;
+    }
+    
+    /**
+     * 打开时发生的迁移或重建的说明，没有时为 null
+     */
+    public String notice() {
+        return notice;
+    }
+    
+    /**
+     * 输出计数器文件的内容，例如
+     * {@code java -cp experiencebarfix.jar com.github.experiencebarfix.core.CounterFile world/experiencebarfix/counters.dat}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("用法: CounterFile <计数器文件>");
+            System.exit(2);
+        }
+        read(Path.of(args[0])).forEach((name, value) -> System.out.println(name + " " + value));
+    }
+}
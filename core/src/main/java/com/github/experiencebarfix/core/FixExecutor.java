@@ -0,0 +1,53 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.UUID;
+
+/**
+ * 修复的执行方
+ * <p>
+ * {@link FixScheduler} 负责接收、合并、调度和统计，与游戏相关的部分通过此接口交给适配层。
+ * 所有方法都在服务器主线程上调用。
+ */
+public interface FixExecutor {
+    
+    /**
+     * 在触发时记下的基准，执行时只有在这之后发送的经验数据包才能作为跳过修复的依据
+     * <p>
+     * 每次触发（包括合并的触发）都会调用一次。
+     *
+     * @param attachment 玩家会话上的附加对象，可能为 null
+     */
+    long packetBaseline(Object attachment);
+    
+    /**
+     * 对单个玩家执行修复
+     *
+     * @param sources 合并后的触发来源位掩码
+     * @param packetBaseline 最近一次触发时的 {@link #packetBaseline(Object)}
+     * @return {@link FixResult} 中的结果
+     */
+    int execute(UUID playerId, int sources, Object attachment, long packetBaseline, FixTrace trace);
+    
+    /**
+     * 本批次的修复全部执行完毕，适配层可以在这里丢弃本批次残留的临时状态
+     */
+    void finishBatch();
+}
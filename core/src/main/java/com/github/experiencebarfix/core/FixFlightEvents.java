@@ -0,0 +1,158 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.UUID;
+
+/**
+ * Java Flight Recorder 自定义事件
+ * <p>
+ * 触发、安排和执行修复时各产生一个事件，与 GC 和服务器刻分析出现在同一份记录中。
+ * 调用方先检查 {@link #isTriggerEnabled()} 等方法，没有记录在收集对应事件时不创建事件对象；
+ * 创建后仍只在 {@code shouldCommit()} 返回 true 时才填充字段，阈值等记录设置由它判断。
+ */
+public final class FixFlightEvents {
+    
+    private static final String CATEGORY = "Experience Bar Fix";
+    
+    // 注册后缓存的事件类型，未注册或运行时不支持 JFR 时为 null
+    private static volatile EventType triggerType;
+    private static volatile EventType scheduledType;
+    private static volatile EventType performedType;
+    
+    private FixFlightEvents() {
+    }
+    
+    /**
+     * 注册事件类型，使其出现在记录设置中
+     *
+     * @throws RuntimeException 运行时不支持 JFR 时
+     */
+    public static void register() {
+        FlightRecorder.register(TriggerReceived.class);
+        FlightRecorder.register(FixScheduled.class);
+        FlightRecorder.register(FixPerformed.class);
+        triggerType = EventType.getEventType(TriggerReceived.class);
+        scheduledType = EventType.getEventType(FixScheduled.class);
+        performedType = EventType.getEventType(FixPerformed.class);
+    }
+    
+    private static boolean isEnabled(EventType type) {
+        return type != null && type.isEnabled();
+    }
+    
+    /**
+     * 是否有记录在收集 {@link TriggerReceived}，未注册时为 false
+     */
+    public static boolean isTriggerEnabled() {
+        return isEnabled(triggerType);
+    }
+    
+    static boolean isScheduledEnabled() {
+        return isEnabled(scheduledType);
+    }
+    
+    static boolean isPerformedEnabled() {
+        return isEnabled(performedType);
+    }
+    
+    @Name("experiencebarfix.TriggerReceived")
+    @Label("Fix Trigger Received")
+    @Category(CATEGORY)
+    @Description("A classified event that requested an experience bar fix")
+    @StackTrace(false)
+    public static final class TriggerReceived extends Event {
+        @Label("Source")
+        String source;
+        
+        @Label("Player UUID")
+        String playerId;
+        
+        @Label("Dimension")
+        String dimension;
+        
+        @Label("Merged")
+        @Description("Merged into a fix that was already pending")
+        boolean merged;
+        
+        /**
+         * 填充字段，仅在 {@code shouldCommit()} 为 true 时调用
+         */
+        public void set(TriggerSource source, UUID playerId, String dimension, boolean merged) {
+            this.source = source.id();
+            this.playerId = playerId.toString();
+            this.dimension = dimension;
+            this.merged = merged;
+        }
+    }
+    
+    @Name("experiencebarfix.FixScheduled")
+    @Label("Fix Scheduled")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class FixScheduled extends Event {
+        @Label("Player UUID")
+        String playerId;
+        
+        @Label("Source")
+        String source;
+        
+        @Label("Delay Ticks")
+        int delayTicks;
+        
+        @Label("Deadline Tick")
+        long deadlineTick;
+    }
+    
+    @Name("experiencebarfix.FixPerformed")
+    @Label("Fix Performed")
+    @Category(CATEGORY)
+    @Description("One run of the fix for a player; the event duration covers only the mod's own work")
+    @StackTrace(false)
+    static final class FixPerformed extends Event {
+        @Label("Player UUID")
+        String playerId;
+        
+        @Label("Sources")
+        String sources;
+        
+        @Label("Method")
+        String method;
+        
+        @Label("Success")
+        boolean success;
+        
+        @Label("Trigger To Completion")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+        
+        @Label("Fallback Reason")
+        String fallbackReason;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 修复事件的有界环形缓冲区
+ * <p>
+ * 单生产者（服务器主线程）、单消费者（日志写入线程）。记录保存在预先分配的基本类型数组中，
+ * 写入只做数组赋值和一次有序写，不分配对象也不做 I/O。
+ * 缓冲区已满时丢弃新的记录并计数，不会阻塞服务器主线程。
+ */
+public final class FixJournal {
+    
+    /** 安排了新的修复 */
+    public static final int KIND_TRIGGER = 0;
+    /** 合并到等待中的修复 */
+    public static final int KIND_MERGED = 1;
+    /** 执行了一次修复 */
+    public static final int KIND_FIX = 2;
+    
+    private static final String[] KIND_IDS = {"trigger", "merged", "fix"};
+    
+    private final int capacity;
+    private final int mask;
+    
+    private final byte[] kinds;
+    private final long[] millis;
+    private final long[] ticks;
+    private final long[] idHigh;
+    private final long[] idLow;
+    private final String[] names;
+    private final int[] sources;
+    private final int[] results;
+    private final long[] latencies;
+    
+    // 下一个写入位置，只由生产者推进
+    private final AtomicLong head = new AtomicLong();
+    // 下一个读取位置，只由消费者推进，同时等于已取出的记录总数
+    private final AtomicLong tail = new AtomicLong();
+    // 生产者缓存的读取位置，只在看起来已满时才重新读取
+    private long cachedTail;
+    
+    private final AtomicLong dropped = new AtomicLong();
+    
+    /**
+     * @param capacity 记录条数，向上取整为 2 的幂
+     */
+    public FixJournal(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.millis = new long[size];
+        this.ticks = new long[size];
+        this.idHigh = new long[size];
+        this.idLow = new long[size];
+        this.names = new String[size];
+        this.sources = new int[size];
+        this.results = new int[size];
+        this.latencies = new long[size];
+    }
+    
+    // ---- 生产者 ----
+    
+    /**
+     * 记录一次触发
+     *
+     * @return 缓冲区已满、记录被丢弃时为 false
+     */
+    public boolean trigger(UUID playerId, String playerName, TriggerSource source, boolean merged, 
+                           long tick, long nowMillis) {
+        return offer(merged ? KIND_MERGED : KIND_TRIGGER, playerId, playerName, source.bit(), 
+            -1, tick, nowMillis, 0L);
+    }
+    
+    /**
+     * 记录一次修复的结果
+     *
+     * @param latencyNanos 从触发到修复完成的纳秒数
+     * @return 缓冲区已满、记录被丢弃时为 false
+     */
+    public boolean fix(UUID playerId, String playerName, int sourceMask, int result, 
+                       long tick, long nowMillis, long latencyNanos) {
+        return offer(KIND_FIX, playerId, playerName, sourceMask, result, tick, nowMillis, latencyNanos);
+    }
+    
+    private boolean offer(int kind, UUID playerId, String playerName, int sourceMask, int result, 
+                          long tick, long nowMillis, long latencyNanos) {
+        long position = head.get();
+        if (position - cachedTail >= capacity) {
+            cachedTail = tail.get();
+            if (position - cachedTail >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        
+        int i = (int) position & mask;
+        kinds[i] = (byte) kind;
+        millis[i] = nowMillis;
+        ticks[i] = tick;
+        idHigh[i] = playerId.getMostSignificantBits();
+        idLow[i] = playerId.getLeastSignificantBits();
+        names[i] = playerName;
+        sources[i] = sourceMask;
+        results[i] = result;
+        latencies[i] = latencyNanos;
+        
+        // 有序写：消费者看到新的位置时，上面的字段已经可见
+        head.lazySet(position + 1);
+        return true;
+    }
+    
+    // ---- 消费者 ----
+    
+    /**
+     * 取出最多 {@code max} 条记录，每条格式化为一行 JSON 追加到 {@code out}
+     *
+     * @return 取出的记录数
+     */
+    public int drainTo(StringBuilder out, int max) {
+        long position = tail.get();
+        int count = (int) Math.min(max, head.get() - position);
+        for (int n = 0; n < count; n++) {
+            int i = (int) (position + n) & mask;
+            appendJson(out, i);
+            names[i] = null;
+        }
+        if (count > 0) {
+            tail.lazySet(position + count);
+        }
+        return count;
+    }
+    
+    private void appendJson(StringBuilder out, int i) {
+        int kind = kinds[i];
+        out.append("{\"time\":").append(millis[i])
+            .append(",\"tick\":").append(ticks[i])
+            .append(",\"event\":\"").append(KIND_IDS[kind])
+            .append("\",\"player\":\"").append(new UUID(idHigh[i], idLow[i]))
+            .append("\",\"name\":\"");
+        appendEscaped(out, names[i]);
+        out.append("\",\"sources\":\"");
+        appendSources(out, sources[i]);
+        out.append('"');
+        if (kind == KIND_FIX) {
+            out.append(",\"result\":\"").append(FixResult.id(results[i]))
+                .append("\",\"latency_ns\":").append(latencies[i]);
+        }
+        out.append("}\n");
+    }
+    
+    private static void appendSources(StringBuilder out, int mask) {
+        boolean first = true;
+        for (TriggerSource source : TriggerSource.values()) {
+            if ((mask & source.bit()) != 0) {
+                if (!first) {
+                    out.append('+');
+                }
+                out.append(source.id());
+                first = false;
+            }
+        }
+    }
+    
+    private static void appendEscaped(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+    
+    // ---- 状态 ----
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    /**
+     * 等待写入的记录数
+     */
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+    
+    /**
+     * 已取出并交给写入线程的记录总数
+     */
+    public long drained() {
+        return tail.get();
+    }
+    
+    /**
+     * 因缓冲区已满而丢弃的记录总数
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * 单次修复的结果
+ */
+public final class FixResult {
+    
+    /** 重新发送经验数据包成功 */
+    public static final int PRIMARY = 0;
+    /** 主要方法失败后由备用方法完成 */
+    public static final int FALLBACK = 1;
+    /** 执行时玩家已离线 */
+    public static final int OFFLINE = 2;
+    /** 所有方法均失败 */
+    public static final int FAILED = 3;
+    /** 客户端已有最新经验值，跳过重新同步 */
+    public static final int SUPPRESSED = 4;
+    
+    private FixResult() {
+    }
+    
+    /**
+     * 客户端最终是否拥有正确的经验值
+     */
+    public static boolean isSuccess(int result) {
+        return result == PRIMARY || result == FALLBACK || result == SUPPRESSED;
+    }
+    
+    /**
+     * 结果的英文标识，用于 JFR 事件和监控指标
+     */
+    public static String id(int result) {
+        return switch (result) {
+            case PRIMARY -> "packet";
+            case FALLBACK -> "fallback";
+            case OFFLINE -> "offline";
+            case SUPPRESSED -> "suppressed";
+            default -> "failed";
+        };
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 修复的接收、合并、调度和统计
+ * <p>
+ * 触发按玩家合并为最多一个等待中的修复，放入按游戏刻推进的时间轮；
+ * 每刻结束时取出到期的修复放入先进先出的积压队列，在每刻预算内批量交给 {@link FixExecutor} 执行，
+ * 并按批次更新统计。超出预算的修复按到期顺序留到之后的游戏刻，每名玩家在队列中最多出现一次。
+ * 不依赖游戏代码，可以单独测试和基准测试。
+ * <p>
+ * 此类不是线程安全的，只能在服务器主线程上使用；统计信息可以从其他线程读取。
+ */
+public final class FixScheduler {
+    
+    /** 已安排新的修复 */
+    public static final int SCHEDULED = 0;
+    /** 已合并到等待中的修复 */
+    public static final int MERGED = 1;
+    
+    /** 已从时间轮取出、在积压队列中等待执行的修复的执行刻 */
+    public static final long QUEUED = Long.MAX_VALUE;
+    
+    private static final long NANOS_PER_TICK = 50_000_000L;
+    
+    // 跳过的条目，例如执行前会话已被移除
+    private static final int RESULT_SKIPPED = -1;
+    
+    private final FixExecutor executor;
+    private final FixStatistics stats;
+    
+    // 玩家状态表：待修复标记、触发来源和会话信息，每名玩家最多一个等待中的修复
+    private final PlayerStateTable players;
+    
+    // 按目标游戏刻安排的修复任务；只保存玩家 UUID，不持有玩家对象
+    private final TickTimingWheel<UUID> fixWheel = new TickTimingWheel<>(32);
+    private final Consumer<UUID> collector = this::collectDueFix;
+    
+    // 已到期、等待在预算内执行的玩家，环形数组
+    private UUID[] backlog = new UUID[64];
+    private int backlogHead;
+    private volatile int backlogSize;
+    
+    // 本刻到期、等待批量处理的玩家，以及处理时记录的触发信息和修复结果
+    private UUID[] dueIds = new UUID[64];
+    private int[] dueSources = new int[64];
+    private long[] dueTriggerNanos = new long[64];
+    private long[] dueTriggerTicks = new long[64];
+    private long[] dueScheduledNanos = new long[64];
+    private long[] dueDequeuedNanos = new long[64];
+    private long[] dueBuiltNanos = new long[64];
+    private long[] dueHandedNanos = new long[64];
+    private int[] dueResults = new int[64];
+    private int dueCount;
+    
+    // 正在推进的游戏刻
+    private long drainingTick;
+    
+    private final FixTrace trace = new FixTrace();
+    private final BatchSummary summary = new BatchSummary();
+    
+    // 事件日志，为 null 时不记录；可能在配置重载线程上替换
+    private volatile FixJournal journal;
+    
+    public FixScheduler(FixExecutor executor, FixStatistics stats, int expectedPlayers) {
+        this.executor = executor;
+        this.stats = stats;
+        this.players = new PlayerStateTable(expectedPlayers);
+    }
+    
+    public PlayerStateTable players() {
+        return players;
+    }
+    
+    public FixStatistics statistics() {
+        return stats;
+    }
+    
+    /**
+     * 设置记录触发和修复结果的事件日志，传入 null 停止记录
+     */
+    public void setJournal(FixJournal journal) {
+        this.journal = journal;
+    }
+    
+    // ---- 会话 ----
+    
+    /**
+     * 玩家登入时创建新的会话，已存在的会话会被重置
+     */
+    public void playerJoined(UUID playerId, String playerName, long nowMillis, Object attachment) {
+        int slot = players.reset(playerId, playerName, nowMillis);
+        players.setAttachment(slot, attachment);
+    }
+    
+    /**
+     * 玩家登出时移除会话，等待中的修复计为失败，时间轮中的条目到期时会被丢弃
+     *
+     * @return 是否有等待中的修复
+     */
+    public boolean playerLeft(UUID playerId) {
+        int slot = players.find(playerId);
+        if (slot < 0) {
+            return false;
+        }
+        boolean wasPending = players.isPending(slot);
+        if (wasPending) {
+            stats.recordFailure("玩家离线");
+        }
+        players.removeAt(slot);
+        return wasPending;
+    }
+    
+    // ---- 接收 ----
+    
+    /**
+     * 接收一次已归类的触发，不使用防抖
+     *
+     * @see #requestFix(UUID, String, TriggerSource, long, int, int, int, long)
+     */
+    public int requestFix(UUID playerId, String playerName, TriggerSource source, 
+                          long tick, int delayTicks, long receivedNanos) {
+        return requestFix(playerId, playerName, source, tick, delayTicks, 0, 0, receivedNanos);
+    }
+    
+    /**
+     * 接收一次已归类的触发
+     * <p>
+     * 同一玩家已有等待中的修复时只合并来源，否则在 {@code tick + delayTicks} 刻结束时执行。
+     * <p>
+     * {@code quietTicks} 大于 0 时按玩家防抖：修复至少等到最后一次触发后 {@code quietTicks} 刻，
+     * 等待期间的新触发把执行刻向后推，一串连续的传送只执行一次修复；
+     * 从第一次触发算起最多等待 {@code maxTicks} 刻，持续传送的玩家也不会一直得不到修复。
+     *
+     * @param quietTicks 防抖静默期，0 为不防抖
+     * @param maxTicks 防抖时的最长等待，不小于 {@code quietTicks}
+     * @param receivedNanos 事件到达时的 {@link System#nanoTime()}
+     * @return {@link #SCHEDULED} 或 {@link #MERGED}
+     */
+    public int requestFix(UUID playerId, String playerName, TriggerSource source, 
+                          long tick, int delayTicks, int quietTicks, int maxTicks, long receivedNanos) {
+        stats.recordTrigger(source);
+        long nowMillis = System.currentTimeMillis();
+        int slot = players.getOrCreate(playerId, playerName, nowMillis);
+        long baseline = executor.packetBaseline(players.attachment(slot));
+        FixJournal journal = this.journal;
+        
+        if (players.isPending(slot)) {
+            players.mergeSources(slot, source.bit());
+            // 以最近一次触发为准判断客户端是否已收到最新经验值
+            players.setPacketBaseline(slot, baseline);
+            stats.recordMerged();
+            if (quietTicks > 0) {
+                debounce(slot, playerId, tick, delayTicks, quietTicks, maxTicks);
+            }
+            if (journal != null) {
+                journal.trigger(playerId, playerName, source, true, tick, nowMillis);
+            }
+            return MERGED;
+        }
+        
+        long deadline = tick + Math.max(delayTicks, quietTicks);
+        players.markPending(slot, source.bit(), receivedNanos, tick, deadline);
+        players.setQuietUntil(slot, quietTicks > 0 ? tick + quietTicks : 0L);
+        players.setPacketBaseline(slot, baseline);
+        stats.recordAttempt();
+        
+        fixWheel.schedule(playerId, deadline);
+        players.setScheduledNanos(slot, System.nanoTime());
+        if (journal != null) {
+            journal.trigger(playerId, playerName, source, false, tick, nowMillis);
+        }
+        
+        if (FixFlightEvents.isScheduledEnabled()) {
+            FixFlightEvents.FixScheduled scheduled = new FixFlightEvents.FixScheduled();
+            if (scheduled.shouldCommit()) {
+                scheduled.playerId = playerId.toString();
+                scheduled.source = source.id();
+                scheduled.delayTicks = delayTicks;
+                scheduled.deadlineTick = deadline;
+                scheduled.commit();
+            }
+        }
+        return SCHEDULED;
+    }
+    
+    /**
+     * 防抖：把等待中的修复推迟到本次触发的静默期结束，但不晚于第一次触发后的最长等待
+     */
+    private void debounce(int slot, UUID playerId, long tick, int delayTicks, int quietTicks, int maxTicks) {
+        long quietUntil = tick + quietTicks;
+        players.setQuietUntil(slot, quietUntil);
+        
+        long due = players.dueTick(slot);
+        long wanted = Math.max(tick + delayTicks, quietUntil);
+        if (wanted <= due || due == QUEUED) {
+            return;
+        }
+        long cap = players.triggerTick(slot) + Math.max(maxTicks, quietTicks);
+        if (wanted > cap) {
+            stats.recordDebounceCapped();
+        }
+        long target = Math.min(wanted, cap);
+        if (target > due) {
+            // 原来的时间轮条目到期时发现执行刻已推后，会被丢弃
+            players.setDueTick(slot, target);
+            fixWheel.schedule(playerId, target);
+            stats.recordDebounced();
+        }
+    }
+    
+    /**
+     * 提前执行等待中的修复，例如客户端已经确认了传送
+     * <p>
+     * 修复改为在 {@code tick} 刻结束时执行，原来的时间轮条目到期时会被丢弃。
+     * 在 {@link #advance(long)} 之前以同一刻调用时，修复在本刻内执行。
+     * 使用防抖时不会早于静默期结束，这时修复改为在静默期结束的刻执行。
+     *
+     * @return 是否提前了修复；没有等待中的修复或原定执行刻不晚于目标刻时返回 false
+     */
+    public boolean expedite(UUID playerId, long tick) {
+        int slot = players.find(playerId);
+        if (slot < 0 || !players.isPending(slot)) {
+            return false;
+        }
+        long target = Math.max(tick, players.quietUntil(slot));
+        if (players.dueTick(slot) <= target || players.dueTick(slot) == QUEUED) {
+            return false;
+        }
+        players.setDueTick(slot, target);
+        fixWheel.schedule(playerId, target);
+        stats.recordExpedited();
+        return true;
+    }
+    
+    // ---- 执行 ----
+    
+    /**
+     * 推进到指定游戏刻并批量执行到期的修复，不限制每刻的工作量
+     *
+     * @return 本刻的批次汇总，没有到期修复时数量为 0
+     */
+    public BatchSummary advance(long tick) {
+        return advance(tick, 0, 0L);
+    }
+    
+    /**
+     * 推进到指定游戏刻，在预算内批量执行积压队列中的修复
+     * <p>
+     * 每刻至少执行一个修复；达到数量或时间预算后剩余的修复保持原来的顺序留到下一刻，
+     * 之后到期的修复排在它们后面，同一次大规模重生或维度变化会分摊到多个游戏刻。
+     *
+     * @param maxFixes 每刻最多执行的修复数，0 为不限制
+     * @param budgetNanos 每刻执行修复的时间预算，0 为不限制
+     * @return 本刻的批次汇总，没有执行修复时数量为 0
+     */
+    public BatchSummary advance(long tick, int maxFixes, long budgetNanos) {
+        summary.reset();
+        drainingTick = tick;
+        fixWheel.advanceTo(tick, collector);
+        if (backlogSize == 0) {
+            return summary;
+        }
+        
+        try {
+            dispatchBatch(maxFixes, budgetNanos);
+        } finally {
+            Arrays.fill(dueIds, 0, dueCount, null);
+            dueCount = 0;
+        }
+        summary.deferred = backlogSize;
+        stats.recordBudget(summary.durationNanos, summary.deferred);
+        return summary;
+    }
+    
+    /**
+     * 收集时间轮中到期的修复任务，放到积压队列末尾
+     * <p>
+     * 玩家已登出或修复已被更晚的安排取代时，时间轮中的旧条目会在这里被丢弃。
+     * 提前执行的修复可能在同一刻留有两个条目，收集后把执行刻设为 {@link #QUEUED}，只取出一次。
+     */
+    private void collectDueFix(UUID playerId) {
+        int slot = players.find(playerId);
+        if (slot < 0 || !players.isPending(slot) || players.dueTick(slot) > drainingTick) {
+            return;
+        }
+        players.setDueTick(slot, QUEUED);
+        
+        int size = backlogSize;
+        if (size == backlog.length) {
+            UUID[] grown = new UUID[size * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = backlog[(backlogHead + i) & (size - 1)];
+            }
+            backlog = grown;
+            backlogHead = 0;
+        }
+        backlog[(backlogHead + size) & (backlog.length - 1)] = playerId;
+        backlogSize = size + 1;
+    }
+    
+    /**
+     * 从积压队列头部取出一个修复，放入本批次
+     */
+    private int takeFromBacklog() {
+        UUID playerId = backlog[backlogHead];
+        backlog[backlogHead] = null;
+        backlogHead = (backlogHead + 1) & (backlog.length - 1);
+        backlogSize--;
+        
+        if (dueCount == dueIds.length) {
+            int capacity = dueCount * 2;
+            dueIds = Arrays.copyOf(dueIds, capacity);
+            dueSources = Arrays.copyOf(dueSources, capacity);
+            dueTriggerNanos = Arrays.copyOf(dueTriggerNanos, capacity);
+            dueTriggerTicks = Arrays.copyOf(dueTriggerTicks, capacity);
+            dueScheduledNanos = Arrays.copyOf(dueScheduledNanos, capacity);
+            dueDequeuedNanos = Arrays.copyOf(dueDequeuedNanos, capacity);
+            dueBuiltNanos = Arrays.copyOf(dueBuiltNanos, capacity);
+            dueHandedNanos = Arrays.copyOf(dueHandedNanos, capacity);
+            dueResults = Arrays.copyOf(dueResults, capacity);
+        }
+        dueIds[dueCount] = playerId;
+        return dueCount++;
+    }
+    
+    /**
+     * 在预算内处理积压队列中的修复
+     * <p>
+     * 时间读取和统计更新按批次只做一次，每个玩家只需要执行修复本身。
+     */
+    private void dispatchBatch(int maxFixes, long budgetNanos) {
+        long batchStart = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        FixJournal journal = this.journal;
+        int executed = 0;
+        
+        while (backlogSize > 0) {
+            // 同一次时间读取既用于预算判断，也作为这个修复的出队时间
+            long now = System.nanoTime();
+            if (executed > 0 && ((maxFixes > 0 && executed >= maxFixes) 
+                    || (budgetNanos > 0 && now - batchStart >= budgetNanos))) {
+                break;
+            }
+            
+            // 修复过程中可能触发其他事件并改动状态表，因此每次都重新查找槽位
+            int i = takeFromBacklog();
+            dueDequeuedNanos[i] = now;
+            UUID playerId = dueIds[i];
+            int slot = players.find(playerId);
+            if (slot < 0 || !players.isPending(slot)) {
+                // 排队期间玩家已登出或重新登入
+                dueResults[i] = RESULT_SKIPPED;
+                continue;
+            }
+            
+            int sources = players.pendingSources(slot);
+            dueSources[i] = sources;
+            dueTriggerNanos[i] = players.triggerNanos(slot);
+            dueTriggerTicks[i] = players.triggerTick(slot);
+            dueScheduledNanos[i] = players.scheduledNanos(slot);
+            long baseline = players.packetBaseline(slot);
+            Object attachment = players.attachment(slot);
+            String playerName = players.name(slot);
+            players.clearPending(slot);
+            
+            trace.reset();
+            // 没有记录在收集时不创建事件，也不计时
+            FixFlightEvents.FixPerformed flight = FixFlightEvents.isPerformedEnabled() 
+                ? new FixFlightEvents.FixPerformed() : null;
+            if (flight != null) {
+                flight.begin();
+            }
+            int result = executor.execute(playerId, sources, attachment, baseline, trace);
+            if (flight != null) {
+                flight.end();
+            }
+            
+            executed++;
+            dueResults[i] = result;
+            dueBuiltNanos[i] = trace.builtNanos();
+            dueHandedNanos[i] = trace.handedNanos();
+            
+            if (journal != null) {
+                journal.fix(playerId, playerName, sources, result, drainingTick, nowMillis, 
+                    System.nanoTime() - dueTriggerNanos[i]);
+            }
+            
+            if (flight != null && flight.shouldCommit()) {
+                flight.playerId = playerId.toString();
+                flight.sources = TriggerSource.describe(sources);
+                flight.method = FixResult.id(result);
+                flight.success = FixResult.isSuccess(result);
+                flight.latency = System.nanoTime() - dueTriggerNanos[i];
+                flight.fallbackReason = trace.fallbackReason();
+                flight.commit();
+            }
+            
+            if (result == FixResult.PRIMARY) {
+                summary.primary++;
+            } else if (result == FixResult.FALLBACK) {
+                summary.fallback++;
+            } else if (result == FixResult.SUPPRESSED) {
+                summary.suppressed++;
+            }
+            if (FixResult.isSuccess(result)) {
+                summary.succeeded++;
+                int current = players.find(playerId);
+                if (current >= 0) {
+                    players.recordFix(current, nowMillis);
+                }
+            }
+        }
+        
+        // 整批只结束一次
+        executor.finishBatch();
+        
+        long batchEnd = System.nanoTime();
+        summary.count = executed;
+        summary.durationNanos = batchEnd - batchStart;
+        
+        // 批次级别的统计更新
+        stats.recordBatch(summary);
+        recordBatchPerformance(batchEnd);
+    }
+    
+    /**
+     * 按批次记录性能数据和延迟分布
+     */
+    private void recordBatchPerformance(long endTime) {
+        long sum = 0;
+        long longest = 0;
+        long shortest = Long.MAX_VALUE;
+        for (int i = 0; i < dueCount; i++) {
+            if (dueResults[i] == RESULT_SKIPPED) {
+                continue;
+            }
+            long duration = endTime - dueTriggerNanos[i];
+            sum += duration;
+            longest = Math.max(longest, duration);
+            shortest = Math.min(shortest, duration);
+            
+            stats.recordLatency(dueSources[i], dueResults[i], duration, drainingTick - dueTriggerTicks[i]);
+            recordPhases(i);
+        }
+        
+        if (summary.count > 0) {
+            stats.recordDurations(sum, longest, shortest);
+        }
+        summary.totalLatencyNanos = sum;
+    }
+    
+    /**
+     * 记录单个修复的各阶段耗时
+     * <p>
+     * 接收和安排发生在触发的游戏刻内，出队、构建和交付发生在执行的游戏刻内；
+     * 等待和构建都以这个修复自己的出队时间为界，不包含同一批次中排在前面的修复。
+     */
+    private void recordPhases(int i) {
+        long waitNanos = dueDequeuedNanos[i] - dueScheduledNanos[i];
+        long waitTicks = drainingTick - dueTriggerTicks[i];
+        
+        stats.recordPhase(FixStatistics.PHASE_SCHEDULE, dueScheduledNanos[i] - dueTriggerNanos[i], 0);
+        stats.recordPhase(FixStatistics.PHASE_WAIT, waitNanos, waitTicks);
+        stats.recordTickOverrun(waitNanos - waitTicks * NANOS_PER_TICK);
+        
+        // 跳过或离线的修复没有构建数据包
+        if (dueBuiltNanos[i] != 0L) {
+            stats.recordPhase(FixStatistics.PHASE_BUILD, dueBuiltNanos[i] - dueDequeuedNanos[i], 0);
+            if (dueHandedNanos[i] != 0L) {
+                stats.recordPhase(FixStatistics.PHASE_HAND_OFF, dueHandedNanos[i] - dueBuiltNanos[i], 0);
+            }
+        }
+    }
+    
+    /**
+     * 等待中的修复数量，包括积压队列中的修复
+     */
+    public int pendingCount() {
+        return players.pendingCount();
+    }
+    
+    /**
+     * 已到期但因为预算留到之后执行的修复数量，可从其他线程读取
+     */
+    public int backlogSize() {
+        return backlogSize;
+    }
+    
+    /**
+     * 清空所有等待中的修复和玩家会话
+     */
+    public void clear() {
+        fixWheel.clear();
+        Arrays.fill(dueIds, null);
+        dueCount = 0;
+        Arrays.fill(backlog, null);
+        backlogHead = 0;
+        backlogSize = 0;
+        players.clear();
+    }
+}
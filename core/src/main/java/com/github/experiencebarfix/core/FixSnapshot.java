@@ -0,0 +1,433 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 修复器状态的不可变快照
+ * <p>
+ * 由服务器主线程定期 {@link #capture} 并整体发布，管理命令等读者只访问快照，
+ * 不会遍历正在变化的玩家表和错误计数，也不需要加锁。
+ */
+public final class FixSnapshot {
+    
+    /**
+     * 服务器启动前使用的空快照
+     */
+    public static final FixSnapshot EMPTY = new FixSnapshot();
+    
+    private static final TriggerSource[] SOURCES = TriggerSource.values();
+    private static final Comparator<Session> BY_NAME = Comparator.comparing(Session::name, String.CASE_INSENSITIVE_ORDER);
+    private static final Comparator<Session> BY_FIXES = Comparator.comparingInt(Session::fixCount).reversed().thenComparing(BY_NAME);
+    private static final Comparator<Session> BY_DUE = Comparator.comparingLong(Session::dueTick).thenComparing(BY_NAME);
+    
+    private final long tick;
+    private final long capturedMillis;
+    
+    private final long attempts;
+    private final long successes;
+    private final long failures;
+    private final long merged;
+    private final long suppressed;
+    private final long expedited;
+    private final long debounced;
+    private final long cancelledTeleports;
+    private final long uncommittedTeleports;
+    private final long[] policyDecisions;
+    private final long[] triggers;
+    private final long[] methodSuccesses;
+    private final long averageNanos;
+    private final long longestNanos;
+    private final long shortestNanos;
+    private final long[] sourceCounts;
+    private final long[] sourceP50Nanos;
+    private final long[] sourceP99Nanos;
+    private final Map<String, Long> errors;
+    private final RateWindow.Snapshot recent;
+    
+    private final boolean persistent;
+    private final long starts;
+    private final long lifetimeAttempts;
+    private final long lifetimeSuccesses;
+    private final long lifetimeFailures;
+    
+    private final List<Session> sessions;
+    private final List<Session> topByFixes;
+    private final List<Session> pending;
+    private final int backlog;
+    
+    private FixSnapshot() {
+        tick = 0;
+        capturedMillis = 0;
+        attempts = 0;
+        successes = 0;
+        failures = 0;
+        merged = 0;
+        suppressed = 0;
+        expedited = 0;
+        debounced = 0;
+        cancelledTeleports = 0;
+        uncommittedTeleports = 0;
+        policyDecisions = new long[TriggerPolicy.ACTION_IDS.length];
+        triggers = new long[SOURCES.length];
+        methodSuccesses = new long[FixStatistics.METHOD_IDS.length];
+        averageNanos = 0;
+        longestNanos = 0;
+        shortestNanos = 0;
+        sourceCounts = new long[SOURCES.length];
+        sourceP50Nanos = new long[SOURCES.length];
+        sourceP99Nanos = new long[SOURCES.length];
+        errors = Collections.emptyMap();
+        recent = FixStatistics.EMPTY_RECENT;
+        persistent = false;
+        starts = 0;
+        lifetimeAttempts = 0;
+        lifetimeSuccesses = 0;
+        lifetimeFailures = 0;
+        sessions = Collections.emptyList();
+        topByFixes = Collections.emptyList();
+        pending = Collections.emptyList();
+        backlog = 0;
+    }
+    
+    private FixSnapshot(FixScheduler scheduler, long tick, long nowMillis) {
+        FixStatistics stats = scheduler.statistics();
+        PlayerStateTable players = scheduler.players();
+        this.tick = tick;
+        this.capturedMillis = nowMillis;
+        
+        attempts = stats.attempts();
+        successes = stats.successes();
+        failures = stats.failures();
+        merged = stats.merged();
+        suppressed = stats.suppressed();
+        expedited = stats.expedited();
+        debounced = stats.debounced();
+        cancelledTeleports = stats.cancelledTeleports();
+        uncommittedTeleports = stats.uncommittedTeleports();
+        policyDecisions = new long[TriggerPolicy.ACTION_IDS.length];
+        for (int i = 0; i < policyDecisions.length; i++) {
+            policyDecisions[i] = stats.policyDecisions(i);
+        }
+        triggers = new long[SOURCES.length];
+        sourceCounts = new long[SOURCES.length];
+        sourceP50Nanos = new long[SOURCES.length];
+        sourceP99Nanos = new long[SOURCES.length];
+        for (TriggerSource source : SOURCES) {
+            int i = source.ordinal();
+            LatencyHistogram histogram = stats.sourceNanos(source);
+            triggers[i] = stats.triggers(source);
+            sourceCounts[i] = histogram.count();
+            sourceP50Nanos[i] = histogram.percentile(50);
+            sourceP99Nanos[i] = histogram.percentile(99);
+        }
+        methodSuccesses = new long[FixStatistics.METHOD_IDS.length];
+        for (int i = 0; i < methodSuccesses.length; i++) {
+            methodSuccesses[i] = stats.methodSuccesses(i);
+        }
+        averageNanos = attempts == 0 ? 0 : stats.totalDurationNanos() / attempts;
+        longestNanos = stats.longestNanos();
+        shortestNanos = stats.shortestNanos();
+        
+        // 按次数从多到少排列
+        List<Map.Entry<String, Long>> errorList = new ArrayList<>();
+        stats.errorCounts().forEach((type, count) -> errorList.add(Map.entry(type, (long) count.get())));
+        errorList.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> errorMap = new LinkedHashMap<>();
+        errorList.forEach(entry -> errorMap.put(entry.getKey(), entry.getValue()));
+        errors = Collections.unmodifiableMap(errorMap);
+        recent = stats.recent();
+        
+        CounterFile counters = stats.counterFile();
+        persistent = counters.path() != null;
+        starts = counters.opens();
+        lifetimeAttempts = stats.lifetimeAttempts();
+        lifetimeSuccesses = stats.lifetimeSuccesses();
+        lifetimeFailures = stats.lifetimeFailures();
+        
+        List<Session> all = new ArrayList<>(players.size());
+        List<Session> waiting = new ArrayList<>(players.pendingCount());
+        for (int slot = 0; slot < players.capacity(); slot++) {
+            if (players.isOccupied(slot)) {
+                Session session = new Session(players, slot);
+                all.add(session);
+                if (session.pending) {
+                    waiting.add(session);
+                }
+            }
+        }
+        all.sort(BY_NAME);
+        waiting.sort(BY_DUE);
+        List<Session> top = new ArrayList<>(all);
+        top.sort(BY_FIXES);
+        sessions = Collections.unmodifiableList(all);
+        topByFixes = Collections.unmodifiableList(top);
+        pending = Collections.unmodifiableList(waiting);
+        backlog = scheduler.backlogSize();
+    }
+    
+    /**
+     * 在拥有调度器的线程上复制当前状态
+     */
+    public static FixSnapshot capture(FixScheduler scheduler, long tick, long nowMillis) {
+        return new FixSnapshot(scheduler, tick, nowMillis);
+    }
+    
+    /**
+     * 一个玩家会话在快照时刻的状态
+     */
+    public static final class Session {
+        
+        private final UUID id;
+        private final String name;
+        private final long joinMillis;
+        private final int fixCount;
+        private final long lastFixMillis;
+        private final boolean pending;
+        private final int pendingSources;
+        private final long dueTick;
+        
+        private Session(PlayerStateTable players, int slot) {
+            id = players.id(slot);
+            name = players.name(slot);
+            joinMillis = players.joinMillis(slot);
+            fixCount = players.fixCount(slot);
+            lastFixMillis = players.lastFixMillis(slot);
+            pending = players.isPending(slot);
+            pendingSources = pending ? players.pendingSources(slot) : 0;
+            dueTick = pending ? players.dueTick(slot) : 0;
+        }
+        
+        public UUID id() {
+            return id;
+        }
+        
+        public String name() {
+            return name;
+        }
+        
+        public long joinMillis() {
+            return joinMillis;
+        }
+        
+        public int fixCount() {
+            return fixCount;
+        }
+        
+        /**
+         * 最近一次修复的时间，尚未修复时为 0
+         */
+        public long lastFixMillis() {
+            return lastFixMillis;
+        }
+        
+        public boolean pending() {
+            return pending;
+        }
+        
+        /**
+         * 等待中的修复的来源位掩码
+         */
+        public int pendingSources() {
+            return pendingSources;
+        }
+        
+        /**
+         * 等待中的修复将在哪一刻执行
+         */
+        public long dueTick() {
+            return dueTick;
+        }
+    }
+    
+    // ---- 读取 ----
+    
+    /**
+     * 快照所在的游戏刻
+     */
+    public long tick() {
+        return tick;
+    }
+    
+    public long capturedMillis() {
+        return capturedMillis;
+    }
+    
+    public long attempts() {
+        return attempts;
+    }
+    
+    public long successes() {
+        return successes;
+    }
+    
+    public long failures() {
+        return failures;
+    }
+    
+    public long merged() {
+        return merged;
+    }
+    
+    public long suppressed() {
+        return suppressed;
+    }
+    
+    public long expedited() {
+        return expedited;
+    }
+    
+    public long debounced() {
+        return debounced;
+    }
+    
+    public long cancelledTeleports() {
+        return cancelledTeleports;
+    }
+    
+    public long uncommittedTeleports() {
+        return uncommittedTeleports;
+    }
+    
+    /**
+     * 触发策略作出某种判断的次数，见 {@link TriggerPolicy#ACTION_IDS}
+     */
+    public long policyDecisions(int action) {
+        return policyDecisions[action];
+    }
+    
+    public long triggers(TriggerSource source) {
+        return triggers[source.ordinal()];
+    }
+    
+    public long methodSuccesses(int method) {
+        return methodSuccesses[method];
+    }
+    
+    public long averageNanos() {
+        return averageNanos;
+    }
+    
+    public long longestNanos() {
+        return longestNanos;
+    }
+    
+    public long shortestNanos() {
+        return shortestNanos;
+    }
+    
+    /**
+     * 按来源记录的从触发到完成的延迟样本数
+     */
+    public long latencyCount(TriggerSource source) {
+        return sourceCounts[source.ordinal()];
+    }
+    
+    public long latencyP50Nanos(TriggerSource source) {
+        return sourceP50Nanos[source.ordinal()];
+    }
+    
+    public long latencyP99Nanos(TriggerSource source) {
+        return sourceP99Nanos[source.ordinal()];
+    }
+    
+    /**
+     * 按次数从多到少排列的错误计数
+     */
+    public Map<String, Long> errors() {
+        return errors;
+    }
+    
+    /**
+     * 最近 1/5/15 分钟的计数，计数项见 {@code FixStatistics.RATE_*}
+     */
+    public RateWindow.Snapshot recent() {
+        return recent;
+    }
+    
+    /**
+     * 计数器是否保存在文件中，为 false 时累计值只包含本次启动
+     */
+    public boolean persistent() {
+        return persistent;
+    }
+    
+    public long starts() {
+        return starts;
+    }
+    
+    public long lifetimeAttempts() {
+        return lifetimeAttempts;
+    }
+    
+    public long lifetimeSuccesses() {
+        return lifetimeSuccesses;
+    }
+    
+    public long lifetimeFailures() {
+        return lifetimeFailures;
+    }
+    
+    /**
+     * 已到期但因为每刻预算留到之后执行的修复数
+     */
+    public int backlog() {
+        return backlog;
+    }
+    
+    /**
+     * 按名称排列的玩家会话
+     */
+    public List<Session> sessions() {
+        return sessions;
+    }
+    
+    /**
+     * 按修复次数从多到少排列的玩家会话
+     */
+    public List<Session> topByFixes() {
+        return topByFixes;
+    }
+    
+    /**
+     * 按执行时间排列的等待中的修复
+     */
+    public List<Session> pending() {
+        return pending;
+    }
+    
+    /**
+     * 按名称查找会话，不区分大小写，找不到时返回 null
+     */
+    public Session find(String name) {
+        for (Session session : sessions) {
+            if (session.name.equalsIgnoreCase(name)) {
+                return session;
+            }
+        }
+        return null;
+    }
+}
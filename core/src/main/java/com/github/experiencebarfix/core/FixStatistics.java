@@ -0,0 +1,665 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 修复统计信息
+ * <p>
+ * 计数器和延迟分布都是无锁的，由服务器主线程写入，统计日志和监控端点可以从其他线程读取。
+ * <p>
+ * 累加型计数器保存在 {@link CounterFile} 中，挂接到文件后跨重启累计；
+ * 读取方法返回本次会话（上一次 {@link #reset()} 以来）的增量，{@code lifetime*} 方法返回累计值。
+ * 延迟分布、最长/最短耗时和错误计数只在内存中保存本次会话的数据。
+ * <p>
+ * 尝试、成功、失败、错误和各来源的触发另外计入最近 1/5/15 分钟的 {@link RateWindow}，
+ * 由主线程每刻 {@link #roll} 推进并发布快照；滑动窗口描述最近的活动，不随会话重置。
+ */
+public final class FixStatistics {
+    
+    // 修复方法
+    public static final int METHOD_PACKET = 0;
+    public static final int METHOD_FALLBACK = 1;
+    public static final String[] METHOD_NAMES = {"数据包发送", "经验曲线"};
+    public static final String[] METHOD_IDS = {"packet", "fallback"};
+    
+    // 各阶段耗时：接收→安排、安排→出队、出队→构建、构建→交付
+    public static final int PHASE_SCHEDULE = 0;
+    public static final int PHASE_WAIT = 1;
+    public static final int PHASE_BUILD = 2;
+    public static final int PHASE_HAND_OFF = 3;
+    public static final String[] PHASE_NAMES = {"接收→安排", "安排→出队", "出队→构建", "构建→交付"};
+    public static final String[] PHASE_IDS = {"schedule", "wait", "build", "hand_off"};
+    
+    private static final TriggerSource[] SOURCES = TriggerSource.values();
+    
+    // 滑动窗口中的计数项，各来源的触发位于 RATE_TRIGGERS + ordinal
+    public static final int RATE_ATTEMPTS = 0;
+    public static final int RATE_SUCCESSES = 1;
+    public static final int RATE_FAILURES = 2;
+    public static final int RATE_ERRORS = 3;
+    public static final int RATE_TRIGGERS = 4;
+    private static final int RATE_COUNT = RATE_TRIGGERS + SOURCES.length;
+    static final RateWindow.Snapshot EMPTY_RECENT = RateWindow.empty(RATE_COUNT);
+    
+    // 计数器文件中的位置，名称见 COUNTER_NAMES；只能在末尾追加，改名或删除会丢失累计值
+    private static final int C_ATTEMPTS = 0;
+    private static final int C_SUCCESSES = 1;
+    private static final int C_FAILURES = 2;
+    private static final int C_MERGED = 3;
+    private static final int C_SUPPRESSED = 4;
+    private static final int C_DURATION = 5;
+    private static final int C_TRIGGERS = 6;
+    private static final int C_METHODS = C_TRIGGERS + SOURCES.length;
+    private static final int C_EXPEDITED = C_METHODS + METHOD_IDS.length;
+    private static final int C_DEBOUNCED = C_EXPEDITED + 1;
+    private static final int C_DEBOUNCE_CAPPED = C_DEBOUNCED + 1;
+    private static final int C_BUDGET_EXHAUSTED = C_DEBOUNCE_CAPPED + 1;
+    private static final int C_DEFERRED = C_BUDGET_EXHAUSTED + 1;
+    private static final int C_POLICY = C_DEFERRED + 1;
+    private static final int C_CANCELLED_TELEPORTS = C_POLICY + TriggerPolicy.ACTION_IDS.length;
+    private static final int C_UNCOMMITTED_TELEPORTS = C_CANCELLED_TELEPORTS + 1;
+    private static final int COUNTER_COUNT = C_UNCOMMITTED_TELEPORTS + 1;
+    private static final String[] COUNTER_NAMES = buildCounterNames();
+    
+    // 累加型计数器，默认只在内存中，服务器启动后挂接到文件
+    private volatile CounterFile counters = CounterFile.inMemory(COUNTER_NAMES);
+    
+    // 本次会话开始时的计数器值
+    private volatile long[] baseline = new long[COUNTER_COUNT];
+    
+    // 性能监控
+    private final AtomicLong longestFixDuration = new AtomicLong(0);
+    private final AtomicLong shortestFixDuration = new AtomicLong(Long.MAX_VALUE);
+    
+    // 延迟分布：按触发来源和修复方法分别记录纳秒和游戏刻
+    private final LatencyHistogram[] sourceNanos = newHistograms(SOURCES.length);
+    private final LatencyHistogram[] sourceTicks = newHistograms(SOURCES.length);
+    private final LatencyHistogram[] methodNanos = newHistograms(METHOD_IDS.length);
+    private final LatencyHistogram[] methodTicks = newHistograms(METHOD_IDS.length);
+    private final LatencyHistogram[] phaseNanos = newHistograms(PHASE_IDS.length);
+    private final LatencyHistogram[] phaseTicks = newHistograms(PHASE_IDS.length);
+    
+    // 等待期间实际耗时超出 "游戏刻数 × 50ms" 的部分，反映服务器 MSPT 超标
+    private final LatencyHistogram tickOverrun = new LatencyHistogram();
+    
+    // 每刻执行修复实际使用的时间，以及本次会话中积压队列的最大长度
+    private final LatencyHistogram tickWork = new LatencyHistogram();
+    private final AtomicLong peakBacklog = new AtomicLong(0);
+    
+    // 错误跟踪
+    private final Map<String, AtomicInteger> errorCounts = new ConcurrentHashMap<>();
+    
+    // 最近 1/5/15 分钟的计数
+    private final RateWindow recent = new RateWindow(RATE_COUNT);
+    
+    private static String[] buildCounterNames() {
+        String[] names = new String[COUNTER_COUNT];
+        names[C_ATTEMPTS] = "fix_attempts";
+        names[C_SUCCESSES] = "fix_successes";
+        names[C_FAILURES] = "fix_failures";
+        names[C_MERGED] = "merged_triggers";
+        names[C_SUPPRESSED] = "suppressed_resyncs";
+        names[C_DURATION] = "fix_duration_nanos";
+        for (TriggerSource source : SOURCES) {
+            names[C_TRIGGERS + source.ordinal()] = "triggers." + metricId(source);
+        }
+        for (int i = 0; i < METHOD_IDS.length; i++) {
+            names[C_METHODS + i] = "method_successes." + METHOD_IDS[i];
+        }
+        names[C_EXPEDITED] = "expedited_fixes";
+        names[C_DEBOUNCED] = "debounced_triggers";
+        names[C_DEBOUNCE_CAPPED] = "debounce_capped";
+        names[C_BUDGET_EXHAUSTED] = "budget_exhausted_ticks";
+        names[C_DEFERRED] = "deferred_fixes";
+        for (int i = 0; i < TriggerPolicy.ACTION_IDS.length; i++) {
+            names[C_POLICY + i] = "policy." + TriggerPolicy.ACTION_IDS[i];
+        }
+        names[C_CANCELLED_TELEPORTS] = "cancelled_teleports";
+        names[C_UNCOMMITTED_TELEPORTS] = "uncommitted_teleports";
+        return names;
+    }
+    
+    private static LatencyHistogram[] newHistograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+    
+    // ---- 记录 ----
+    
+    /**
+     * 记录一次触发，通常由 {@link FixScheduler#requestFix} 调用
+     */
+    public void recordTrigger(TriggerSource source) {
+        counters.add(C_TRIGGERS + source.ordinal(), 1);
+        recent.add(RATE_TRIGGERS + source.ordinal(), 1);
+    }
+    
+    void recordMerged() {
+        counters.add(C_MERGED, 1);
+    }
+    
+    void recordAttempt() {
+        counters.add(C_ATTEMPTS, 1);
+        recent.add(RATE_ATTEMPTS, 1);
+    }
+    
+    /**
+     * 记录一次触发策略的判断结果
+     *
+     * @param action {@link TriggerPolicy#NOW}、{@link TriggerPolicy#LATER} 或 {@link TriggerPolicy#SKIP}
+     */
+    public void recordPolicy(int action) {
+        counters.add(C_POLICY + action, 1);
+    }
+    
+    /**
+     * 记录一个已被其他模组取消、因而没有进入调度的传送事件
+     */
+    public void recordCancelledTeleport() {
+        counters.add(C_CANCELLED_TELEPORTS, 1);
+    }
+    
+    /**
+     * 记录一个在下一刻检查时发现玩家位置和世界都没有变化、因而没有安排修复的传送
+     */
+    public void recordUncommittedTeleport() {
+        counters.add(C_UNCOMMITTED_TELEPORTS, 1);
+    }
+    
+    void recordExpedited() {
+        counters.add(C_EXPEDITED, 1);
+    }
+    
+    /**
+     * 记录一次推迟了等待中修复的触发
+     */
+    void recordDebounced() {
+        counters.add(C_DEBOUNCED, 1);
+    }
+    
+    /**
+     * 记录一次因为达到最长等待时间而没有完全推迟修复的触发
+     */
+    void recordDebounceCapped() {
+        counters.add(C_DEBOUNCE_CAPPED, 1);
+    }
+    
+    /**
+     * 记录一次在执行之前就已失败的修复，例如玩家在等待期间登出
+     */
+    public void recordFailure(String errorType) {
+        counters.add(C_FAILURES, 1);
+        recent.add(RATE_FAILURES, 1);
+        incrementError(errorType);
+    }
+    
+    /**
+     * 增加错误计数
+     */
+    public void incrementError(String errorType) {
+        errorCounts.computeIfAbsent(errorType, k -> new AtomicInteger(0)).incrementAndGet();
+        recent.add(RATE_ERRORS, 1);
+    }
+    
+    /**
+     * 按批次更新结果计数
+     */
+    void recordBatch(BatchSummary summary) {
+        CounterFile counters = this.counters;
+        counters.add(C_SUCCESSES, summary.succeeded);
+        counters.add(C_FAILURES, summary.failed());
+        counters.add(C_METHODS + METHOD_PACKET, summary.primary);
+        counters.add(C_METHODS + METHOD_FALLBACK, summary.fallback);
+        counters.add(C_SUPPRESSED, summary.suppressed);
+        recent.add(RATE_SUCCESSES, summary.succeeded);
+        recent.add(RATE_FAILURES, summary.failed());
+    }
+    
+    /**
+     * 按批次更新总耗时和最长、最短耗时
+     */
+    void recordDurations(long sum, long longest, long shortest) {
+        counters.add(C_DURATION, sum);
+        
+        long current = longestFixDuration.get();
+        while (longest > current && !longestFixDuration.compareAndSet(current, longest)) {
+            current = longestFixDuration.get();
+        }
+        
+        current = shortestFixDuration.get();
+        while (shortest < current && !shortestFixDuration.compareAndSet(current, shortest)) {
+            current = shortestFixDuration.get();
+        }
+    }
+    
+    /**
+     * 记录单个修复从触发到完成的延迟
+     * <p>
+     * 合并的修复计入每个参与的来源；跳过或失败的修复不计入方法分布。
+     */
+    void recordLatency(int sources, int result, long nanos, long ticks) {
+        for (int bits = sources; bits != 0; bits &= bits - 1) {
+            int ordinal = Integer.numberOfTrailingZeros(bits);
+            sourceNanos[ordinal].record(nanos);
+            sourceTicks[ordinal].record(ticks);
+        }
+        
+        int method = result == FixResult.PRIMARY ? METHOD_PACKET : result == FixResult.FALLBACK ? METHOD_FALLBACK : -1;
+        if (method >= 0) {
+            methodNanos[method].record(nanos);
+            methodTicks[method].record(ticks);
+        }
+    }
+    
+    void recordPhase(int phase, long nanos, long ticks) {
+        phaseNanos[phase].record(nanos);
+        phaseTicks[phase].record(ticks);
+    }
+    
+    void recordTickOverrun(long nanos) {
+        tickOverrun.record(nanos);
+    }
+    
+    /**
+     * 记录一刻的修复工作量和预算用完后剩余的积压
+     *
+     * @param deferred 留到之后的游戏刻执行的修复数，为 0 时本刻没有用完预算
+     */
+    void recordBudget(long usedNanos, int deferred) {
+        tickWork.record(usedNanos);
+        if (deferred > 0) {
+            CounterFile counters = this.counters;
+            counters.add(C_BUDGET_EXHAUSTED, 1);
+            counters.add(C_DEFERRED, deferred);
+            long current = peakBacklog.get();
+            while (deferred > current && !peakBacklog.compareAndSet(current, deferred)) {
+                current = peakBacklog.get();
+            }
+        }
+    }
+    
+    /**
+     * 推进滑动窗口，由服务器主线程每刻调用
+     *
+     * @param nowNanos 当前的 {@link System#nanoTime()}
+     * @return 是否发布了新的 {@link #recent()} 快照
+     */
+    public boolean roll(long nowNanos) {
+        return recent.roll(nowNanos);
+    }
+    
+    // ---- 计数器文件 ----
+    
+    /**
+     * 计数器文件中按顺序排列的名称，打开文件时使用
+     */
+    public static String[] counterNames() {
+        return COUNTER_NAMES.clone();
+    }
+    
+    /**
+     * 把累加型计数器切换到指定的文件并开始新的会话，传入 null 时回到只在内存中的计数器
+     * <p>
+     * 切换前写入旧计数器的数值不会带到新文件中。
+     */
+    public void attach(CounterFile file) {
+        counters = file != null ? file : CounterFile.inMemory(COUNTER_NAMES);
+        reset();
+    }
+    
+    /**
+     * 当前使用的计数器文件
+     */
+    public CounterFile counterFile() {
+        return counters;
+    }
+    
+    private long session(int slot) {
+        return counters.get(slot) - baseline[slot];
+    }
+    
+    // ---- 读取 ----
+    
+    public long attempts() {
+        return session(C_ATTEMPTS);
+    }
+    
+    public long successes() {
+        return session(C_SUCCESSES);
+    }
+    
+    public long failures() {
+        return session(C_FAILURES);
+    }
+    
+    public long triggers(TriggerSource source) {
+        return session(C_TRIGGERS + source.ordinal());
+    }
+    
+    public long merged() {
+        return session(C_MERGED);
+    }
+    
+    public long methodSuccesses(int method) {
+        return session(C_METHODS + method);
+    }
+    
+    public long suppressed() {
+        return session(C_SUPPRESSED);
+    }
+    
+    /**
+     * 客户端确认传送后提前执行的修复数
+     */
+    public long expedited() {
+        return session(C_EXPEDITED);
+    }
+    
+    /**
+     * 推迟了等待中修复的触发数
+     */
+    public long debounced() {
+        return session(C_DEBOUNCED);
+    }
+    
+    public long debounceCapped() {
+        return session(C_DEBOUNCE_CAPPED);
+    }
+    
+    /**
+     * 触发策略作出某种判断的次数
+     */
+    public long policyDecisions(int action) {
+        return session(C_POLICY + action);
+    }
+    
+    public long cancelledTeleports() {
+        return session(C_CANCELLED_TELEPORTS);
+    }
+    
+    public long uncommittedTeleports() {
+        return session(C_UNCOMMITTED_TELEPORTS);
+    }
+    
+    /**
+     * 预算用完、有修复留到之后执行的游戏刻数
+     */
+    public long budgetExhaustedTicks() {
+        return session(C_BUDGET_EXHAUSTED);
+    }
+    
+    /**
+     * 每刻留到之后执行的修复数之和，一个修复被推迟几刻就计入几次
+     */
+    public long deferredFixes() {
+        return session(C_DEFERRED);
+    }
+    
+    public long peakBacklog() {
+        return peakBacklog.get();
+    }
+    
+    public long totalDurationNanos() {
+        return session(C_DURATION);
+    }
+    
+    public long lifetimeAttempts() {
+        return counters.get(C_ATTEMPTS);
+    }
+    
+    public long lifetimeSuccesses() {
+        return counters.get(C_SUCCESSES);
+    }
+    
+    public long lifetimeFailures() {
+        return counters.get(C_FAILURES);
+    }
+    
+    public long longestNanos() {
+        return longestFixDuration.get();
+    }
+    
+    /**
+     * 最短修复耗时，尚无修复时为 0
+     */
+    public long shortestNanos() {
+        long shortest = shortestFixDuration.get();
+        return shortest == Long.MAX_VALUE ? 0 : shortest;
+    }
+    
+    /**
+     * 按错误类型的计数，只读视图
+     */
+    public Map<String, AtomicInteger> errorCounts() {
+        return Collections.unmodifiableMap(errorCounts);
+    }
+    
+    public LatencyHistogram sourceNanos(TriggerSource source) {
+        return sourceNanos[source.ordinal()];
+    }
+    
+    public LatencyHistogram sourceTicks(TriggerSource source) {
+        return sourceTicks[source.ordinal()];
+    }
+    
+    public LatencyHistogram methodNanos(int method) {
+        return methodNanos[method];
+    }
+    
+    public LatencyHistogram methodTicks(int method) {
+        return methodTicks[method];
+    }
+    
+    public LatencyHistogram phaseNanos(int phase) {
+        return phaseNanos[phase];
+    }
+    
+    public LatencyHistogram phaseTicks(int phase) {
+        return phaseTicks[phase];
+    }
+    
+    public LatencyHistogram tickOverrun() {
+        return tickOverrun;
+    }
+    
+    public LatencyHistogram tickWork() {
+        return tickWork;
+    }
+    
+    /**
+     * 最近 1/5/15 分钟计数的快照，计数项见 {@code RATE_*}
+     */
+    public RateWindow.Snapshot recent() {
+        return recent.snapshot();
+    }
+    
+    /**
+     * 快照中某个窗口内所有来源的触发数
+     */
+    public static long recentTriggers(RateWindow.Snapshot rates, int window) {
+        long total = 0;
+        for (TriggerSource source : SOURCES) {
+            total += rates.count(window, RATE_TRIGGERS + source.ordinal());
+        }
+        return total;
+    }
+    
+    /**
+     * 开始新的会话：重置会话统计信息，累计值保持不变
+     */
+    public void reset() {
+        CounterFile counters = this.counters;
+        long[] snapshot = new long[COUNTER_COUNT];
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            snapshot[i] = counters.get(i);
+        }
+        baseline = snapshot;
+        longestFixDuration.set(0);
+        shortestFixDuration.set(Long.MAX_VALUE);
+        resetAll(sourceNanos);
+        resetAll(sourceTicks);
+        resetAll(methodNanos);
+        resetAll(methodTicks);
+        resetAll(phaseNanos);
+        resetAll(phaseTicks);
+        tickOverrun.reset();
+        tickWork.reset();
+        peakBacklog.set(0);
+        errorCounts.clear();
+    }
+    
+    private static void resetAll(LatencyHistogram[] histograms) {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+    
+    // ---- 监控输出 ----
+    
+    /**
+     * 以 OpenMetrics 格式输出所有计数器和延迟分布
+     *
+     * @param activeSessions 当前跟踪的玩家会话数
+     * @param pendingFixes 等待中的修复数
+     * @param backlog 已到期但因为预算留到之后执行的修复数
+     */
+    public void writeMetrics(OpenMetricsWriter out, int activeSessions, int pendingFixes, int backlog) {
+        out.family("fix_attempts", "counter", "Scheduled experience bar fixes")
+            .counter("fix_attempts", attempts());
+        out.family("fix_successes", "counter", "Fixes that left the client with current experience")
+            .counter("fix_successes", successes());
+        out.family("fix_failures", "counter", "Fixes that failed or whose player went offline")
+            .counter("fix_failures", failures());
+        out.family("lifetime_fix_attempts", "counter", "Scheduled fixes across server restarts")
+            .counter("lifetime_fix_attempts", lifetimeAttempts());
+        out.family("lifetime_fix_successes", "counter", "Successful fixes across server restarts")
+            .counter("lifetime_fix_successes", lifetimeSuccesses());
+        out.family("lifetime_fix_failures", "counter", "Failed fixes across server restarts")
+            .counter("lifetime_fix_failures", lifetimeFailures());
+        
+        out.family("triggers", "counter", "Fix triggers received by source");
+        for (TriggerSource source : SOURCES) {
+            out.counter("triggers", "source", metricId(source), triggers(source));
+        }
+        out.family("merged_triggers", "counter", "Triggers merged into an already pending fix")
+            .counter("merged_triggers", merged());
+        
+        out.family("method_successes", "counter", "Successful fixes by method");
+        for (int i = 0; i < METHOD_IDS.length; i++) {
+            out.counter("method_successes", "method", METHOD_IDS[i], methodSuccesses(i));
+        }
+        out.family("suppressed_resyncs", "counter", "Resyncs skipped because the client was already up to date")
+            .counter("suppressed_resyncs", suppressed());
+        out.family("expedited_fixes", "counter", "Fixes run early because the client acknowledged the teleport")
+            .counter("expedited_fixes", expedited());
+        out.family("debounced_triggers", "counter", "Triggers that pushed a pending fix later instead of causing another fix")
+            .counter("debounced_triggers", debounced());
+        out.family("debounce_capped", "counter", "Debounced triggers limited by the maximum wait")
+            .counter("debounce_capped", debounceCapped());
+        out.family("cancelled_teleports", "counter", "Teleport events ignored because another handler cancelled them")
+            .counter("cancelled_teleports", cancelledTeleports());
+        out.family("uncommitted_teleports", "counter", "Teleports dropped because the player's position and level did not change")
+            .counter("uncommitted_teleports", uncommittedTeleports());
+        
+        RateWindow.Snapshot rates = recent();
+        recentGauge(out, rates, "recent_fix_attempts", "Scheduled fixes in the trailing window", RATE_ATTEMPTS);
+        recentGauge(out, rates, "recent_fix_successes", "Successful fixes in the trailing window", RATE_SUCCESSES);
+        recentGauge(out, rates, "recent_fix_failures", "Failed fixes in the trailing window", RATE_FAILURES);
+        recentGauge(out, rates, "recent_errors", "Errors in the trailing window", RATE_ERRORS);
+        out.family("recent_triggers", "gauge", "Fix triggers in the trailing window by source");
+        for (int w = 0; w < RateWindow.WINDOW_IDS.length; w++) {
+            for (TriggerSource source : SOURCES) {
+                out.gauge("recent_triggers", "window", RateWindow.WINDOW_IDS[w], "source", metricId(source), 
+                    rates.count(w, RATE_TRIGGERS + source.ordinal()));
+            }
+        }
+        
+        out.family("errors", "counter", "Errors by type");
+        errorCounts.forEach((errorType, count) -> out.counter("errors", "type", errorType, count.get()));
+        
+        out.family("policy_decisions", "counter", "Trigger policy decisions by action");
+        for (int i = 0; i < TriggerPolicy.ACTION_IDS.length; i++) {
+            out.counter("policy_decisions", "action", TriggerPolicy.ACTION_IDS[i], policyDecisions(i));
+        }
+        
+        out.family("budget_exhausted_ticks", "counter", "Ticks whose fix budget ran out with fixes left over")
+            .counter("budget_exhausted_ticks", budgetExhaustedTicks());
+        out.family("deferred_fixes", "counter", "Fixes carried over to a later tick, once per tick deferred")
+            .counter("deferred_fixes", deferredFixes());
+        out.family("peak_backlog", "gauge", "Largest backlog left over at the end of a tick this session")
+            .gauge("peak_backlog", peakBacklog());
+        
+        out.family("active_sessions", "gauge", "Tracked player sessions")
+            .gauge("active_sessions", activeSessions);
+        out.family("pending_fixes", "gauge", "Fixes waiting on the timing wheel")
+            .gauge("pending_fixes", pendingFixes);
+        out.family("fix_backlog", "gauge", "Due fixes waiting for a later tick's budget")
+            .gauge("fix_backlog", backlog);
+        
+        out.family("fix_latency_seconds", "summary", "Trigger to completion latency by source");
+        for (TriggerSource source : SOURCES) {
+            out.summary("fix_latency_seconds", "source", metricId(source), sourceNanos(source), 1e-9);
+        }
+        out.family("fix_latency_ticks", "summary", "Trigger to completion latency in ticks by source");
+        for (TriggerSource source : SOURCES) {
+            out.summary("fix_latency_ticks", "source", metricId(source), sourceTicks(source), 1.0);
+        }
+        out.family("method_latency_seconds", "summary", "Trigger to completion latency by method");
+        for (int i = 0; i < METHOD_IDS.length; i++) {
+            out.summary("method_latency_seconds", "method", METHOD_IDS[i], methodNanos[i], 1e-9);
+        }
+        out.family("method_latency_ticks", "summary", "Trigger to completion latency in ticks by method");
+        for (int i = 0; i < METHOD_IDS.length; i++) {
+            out.summary("method_latency_ticks", "method", METHOD_IDS[i], methodTicks[i], 1.0);
+        }
+        out.family("phase_latency_seconds", "summary", "Latency of each fix phase");
+        for (int i = 0; i < PHASE_IDS.length; i++) {
+            out.summary("phase_latency_seconds", "phase", PHASE_IDS[i], phaseNanos[i], 1e-9);
+        }
+        out.family("phase_latency_ticks", "summary", "Latency of each fix phase in ticks");
+        for (int i = 0; i < PHASE_IDS.length; i++) {
+            out.summary("phase_latency_ticks", "phase", PHASE_IDS[i], phaseTicks[i], 1.0);
+        }
+        out.family("tick_overrun_seconds", "summary", "Wait time beyond 50ms per elapsed tick")
+            .summary("tick_overrun_seconds", null, null, tickOverrun, 1e-9);
+        out.family("tick_work_seconds", "summary", "Time spent running fixes in each tick that had any")
+            .summary("tick_work_seconds", null, null, tickWork, 1e-9);
+    }
+    
+    private static void recentGauge(OpenMetricsWriter out, RateWindow.Snapshot rates, String name, String help, int metric) {
+        out.family(name, "gauge", help);
+        for (int w = 0; w < RateWindow.WINDOW_IDS.length; w++) {
+            out.gauge(name, "window", RateWindow.WINDOW_IDS[w], rates.count(w, metric));
+        }
+    }
+    
+    private static String metricId(TriggerSource source) {
+        return source.name().toLowerCase(Locale.ROOT);
+    }
+}
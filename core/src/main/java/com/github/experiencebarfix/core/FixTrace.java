@@ -0,0 +1,74 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * 单次修复执行过程中的记录
+ * <p>
+ * 由 {@link FixScheduler} 复用同一个实例传给 {@link FixExecutor}，
+ * 执行方在构建数据包和交给连接时打点，主要方法失败时记录原因。
+ */
+public final class FixTrace {
+    
+    private long builtNanos;
+    private long handedNanos;
+    private String fallbackReason;
+    
+    FixTrace() {
+    }
+    
+    void reset() {
+        builtNanos = 0L;
+        handedNanos = 0L;
+        fallbackReason = null;
+    }
+    
+    /**
+     * 数据包已构建
+     */
+    public void markBuilt() {
+        builtNanos = System.nanoTime();
+    }
+    
+    /**
+     * 数据包已交给连接
+     */
+    public void markHanded() {
+        handedNanos = System.nanoTime();
+    }
+    
+    /**
+     * 记录改用备用方法的原因
+     */
+    public void fallback(String reason) {
+        fallbackReason = reason;
+    }
+    
+    long builtNanos() {
+        return builtNanos;
+    }
+    
+    long handedNanos() {
+        return handedNanos;
+    }
+    
+    String fallbackReason() {
+        return fallbackReason;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * OpenMetrics 文本格式的输出工具
+ * <p>
+ * 指标名称统一加上 {@code experiencebarfix_} 前缀，时间类指标以秒为单位输出。
+ * 每个指标族先调用 {@code family} 写出类型和说明，再写出一个或多个样本。
+ */
+public final class OpenMetricsWriter {
+    
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    
+    private static final String PREFIX = "experiencebarfix_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final StringBuilder out = new StringBuilder(8192);
+    
+    /**
+     * 写出指标族的类型和说明
+     */
+    public OpenMetricsWriter family(String name, String type, String help) {
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        return this;
+    }
+    
+    /**
+     * 写出计数器样本，名称自动加上 _total 后缀
+     */
+    public OpenMetricsWriter counter(String name, String labelName, String labelValue, long value) {
+        return sample(name + "_total", labelName, labelValue, null, Long.toString(value));
+    }
+    
+    public OpenMetricsWriter counter(String name, long value) {
+        return counter(name, null, null, value);
+    }
+    
+    public OpenMetricsWriter gauge(String name, long value) {
+        return sample(name, null, null, null, Long.toString(value));
+    }
+    
+    public OpenMetricsWriter gauge(String name, String labelName, String labelValue, long value) {
+        return sample(name, labelName, labelValue, null, Long.toString(value));
+    }
+    
+    public OpenMetricsWriter gauge(String name, String labelName, String labelValue, 
+                                   String secondName, String secondValue, long value) {
+        return sample(name, labelName, labelValue, secondName, secondValue, Long.toString(value));
+    }
+    
+    /**
+     * 以摘要类型写出直方图的分位数、总和与数量
+     *
+     * @param scale 输出值与记录值之比，纳秒转为秒时为 1e-9
+     */
+    public OpenMetricsWriter summary(String name, String labelName, String labelValue, LatencyHistogram histogram, double scale) {
+        for (double quantile : QUANTILES) {
+            sample(name, labelName, labelValue, Double.toString(quantile), 
+                format(histogram.percentile(quantile * 100.0) * scale));
+        }
+        sample(name + "_sum", labelName, labelValue, null, format(histogram.sum() * scale));
+        sample(name + "_count", labelName, labelValue, null, Long.toString(histogram.count()));
+        return this;
+    }
+    
+    private OpenMetricsWriter sample(String name, String labelName, String labelValue, String quantile, String value) {
+        return sample(name, labelName, labelValue, quantile != null ? "quantile" : null, quantile, value);
+    }
+    
+    private OpenMetricsWriter sample(String name, String labelName, String labelValue, 
+                                     String secondName, String secondValue, String value) {
+        out.append(PREFIX).append(name);
+        if (labelName != null || secondName != null) {
+            out.append('{');
+            if (labelName != null) {
+                out.append(labelName).append("=\"");
+                escape(labelValue);
+                out.append('"');
+            }
+            if (secondName != null) {
+                if (labelName != null) {
+                    out.append(',');
+                }
+                out.append(secondName).append("=\"");
+                escape(secondValue);
+                out.append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+        return this;
+    }
+    
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+    
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 
+            ? Long.toString((long) value) 
+            : Double.toString(value);
+    }
+    
+    /**
+     * 结束输出并返回完整文本
+     */
+    public String finish() {
+        out.append("# EOF\n");
+        return out.toString();
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.UUID;
+
+/**
+ * 以 UUID 两个 long 为键的开放寻址玩家状态表
+ * <p>
+ * 每个玩家的待修复标记、触发来源、会话时间、修复次数和适配层附加对象都存放在并列数组中，
+ * 不持有 {@code ServerPlayer}，修复执行时再通过 UUID 从玩家列表中取得在线玩家。
+ * 使用线性探测和向后移位删除，负载因子不超过 0.5。
+ * <p>
+ * 只能由 {@link FixScheduler} 在服务器主线程上修改；{@link #size()} 和 {@link #pendingCount()} 可以从其他线程读取。
+ */
+public final class PlayerStateTable {
+    
+    private static final int NO_SLOT = -1;
+    
+    private long[] keyHigh;
+    private long[] keyLow;
+    private boolean[] occupied;
+    private UUID[] ids;
+    private String[] names;
+    
+    // 待修复状态
+    private boolean[] pending;
+    private int[] pendingSources;
+    private long[] triggerNanos;
+    private long[] triggerTick;
+    private long[] scheduledNanos;
+    private long[] dueTick;
+    private long[] quietUntilTick;
+    private long[] packetBaseline;
+    
+    // 适配层附加在会话上的对象，例如连接上的数据包观察器
+    private Object[] attachments;
+    
+    // 会话状态
+    private long[] joinMillis;
+    private int[] fixCount;
+    private long[] lastFixMillis;
+    
+    private int mask;
+    private volatile int size;
+    private volatile int pendingCount;
+    
+    public PlayerStateTable(int expectedPlayers) {
+        allocate(tableSizeFor(expectedPlayers));
+    }
+    
+    private static int tableSizeFor(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+        return Math.max(16, capacity);
+    }
+    
+    private void allocate(int capacity) {
+        keyHigh = new long[capacity];
+        keyLow = new long[capacity];
+        occupied = new boolean[capacity];
+        ids = new UUID[capacity];
+        names = new String[capacity];
+        pending = new boolean[capacity];
+        pendingSources = new int[capacity];
+        triggerNanos = new long[capacity];
+        triggerTick = new long[capacity];
+        scheduledNanos = new long[capacity];
+        dueTick = new long[capacity];
+        quietUntilTick = new long[capacity];
+        packetBaseline = new long[capacity];
+        attachments = new Object[capacity];
+        joinMillis = new long[capacity];
+        fixCount = new int[capacity];
+        lastFixMillis = new long[capacity];
+        mask = capacity - 1;
+    }
+    
+    private static int hash(long high, long low) {
+        long h = high ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+    
+    /**
+     * 查找玩家所在的槽位
+     *
+     * @return 槽位索引，不存在时返回 -1
+     */
+    public int find(UUID id) {
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        int slot = hash(high, low) & mask;
+        while (occupied[slot]) {
+            if (keyHigh[slot] == high && keyLow[slot] == low) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_SLOT;
+    }
+    
+    /**
+     * 获取玩家槽位，不存在时创建新的会话
+     */
+    int getOrCreate(UUID id, String name, long nowMillis) {
+        int slot = find(id);
+        return slot != NO_SLOT ? slot : insert(id, name, nowMillis);
+    }
+    
+    /**
+     * 创建新的会话，已存在的会话会被重置
+     */
+    int reset(UUID id, String name, long nowMillis) {
+        int slot = find(id);
+        if (slot != NO_SLOT) {
+            removeAt(slot);
+        }
+        return insert(id, name, nowMillis);
+    }
+    
+    private int insert(UUID id, String name, long nowMillis) {
+        if ((size + 1) * 2 > mask + 1) {
+            grow();
+        }
+        
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        int slot = hash(high, low) & mask;
+        while (occupied[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        
+        occupied[slot] = true;
+        keyHigh[slot] = high;
+        keyLow[slot] = low;
+        ids[slot] = id;
+        names[slot] = name;
+        joinMillis[slot] = nowMillis;
+        size++;
+        return slot;
+    }
+    
+    private void grow() {
+        long[] oldHigh = keyHigh;
+        long[] oldLow = keyLow;
+        boolean[] oldOccupied = occupied;
+        UUID[] oldIds = ids;
+        String[] oldNames = names;
+        boolean[] oldPending = pending;
+        int[] oldSources = pendingSources;
+        long[] oldTrigger = triggerNanos;
+        long[] oldTriggerTick = triggerTick;
+        long[] oldScheduled = scheduledNanos;
+        long[] oldDue = dueTick;
+        long[] oldQuiet = quietUntilTick;
+        long[] oldBaseline = packetBaseline;
+        Object[] oldAttachments = attachments;
+        long[] oldJoin = joinMillis;
+        int[] oldFixCount = fixCount;
+        long[] oldLastFix = lastFixMillis;
+        
+        allocate(oldHigh.length * 2);
+        
+        for (int i = 0; i < oldHigh.length; i++) {
+            if (!oldOccupied[i]) {
+                continue;
+            }
+            int slot = hash(oldHigh[i], oldLow[i]) & mask;
+            while (occupied[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            occupied[slot] = true;
+            keyHigh[slot] = oldHigh[i];
+            keyLow[slot] = oldLow[i];
+            ids[slot] = oldIds[i];
+            names[slot] = oldNames[i];
+            pending[slot] = oldPending[i];
+            pendingSources[slot] = oldSources[i];
+            triggerNanos[slot] = oldTrigger[i];
+            triggerTick[slot] = oldTriggerTick[i];
+            scheduledNanos[slot] = oldScheduled[i];
+            dueTick[slot] = oldDue[i];
+            quietUntilTick[slot] = oldQuiet[i];
+            packetBaseline[slot] = oldBaseline[i];
+            attachments[slot] = oldAttachments[i];
+            joinMillis[slot] = oldJoin[i];
+            fixCount[slot] = oldFixCount[i];
+            lastFixMillis[slot] = oldLastFix[i];
+        }
+    }
+    
+    /**
+     * 删除槽位，后续探测链上的条目向前移动以保持可达
+     */
+    void removeAt(int slot) {
+        if (pending[slot]) {
+            pendingCount--;
+        }
+        
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (occupied[next]) {
+            int home = hash(keyHigh[next], keyLow[next]) & mask;
+            // 条目的起始位置不在 (hole, next] 区间内时才能移入空洞
+            boolean movable = hole <= next
+                ? (home <= hole || home > next)
+                : (home <= hole && home > next);
+            if (movable) {
+                copySlot(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        clearSlot(hole);
+        size--;
+    }
+    
+    private void copySlot(int from, int to) {
+        keyHigh[to] = keyHigh[from];
+        keyLow[to] = keyLow[from];
+        ids[to] = ids[from];
+        names[to] = names[from];
+        pending[to] = pending[from];
+        pendingSources[to] = pendingSources[from];
+        triggerNanos[to] = triggerNanos[from];
+        triggerTick[to] = triggerTick[from];
+        scheduledNanos[to] = scheduledNanos[from];
+        dueTick[to] = dueTick[from];
+        quietUntilTick[to] = quietUntilTick[from];
+        packetBaseline[to] = packetBaseline[from];
+        attachments[to] = attachments[from];
+        joinMillis[to] = joinMillis[from];
+        fixCount[to] = fixCount[from];
+        lastFixMillis[to] = lastFixMillis[from];
+    }
+    
+    private void clearSlot(int slot) {
+        occupied[slot] = false;
+        keyHigh[slot] = 0L;
+        keyLow[slot] = 0L;
+        ids[slot] = null;
+        names[slot] = null;
+        pending[slot] = false;
+        pendingSources[slot] = 0;
+        triggerNanos[slot] = 0L;
+        triggerTick[slot] = 0L;
+        scheduledNanos[slot] = 0L;
+        dueTick[slot] = 0L;
+        quietUntilTick[slot] = 0L;
+        packetBaseline[slot] = 0L;
+        attachments[slot] = null;
+        joinMillis[slot] = 0L;
+        fixCount[slot] = 0;
+        lastFixMillis[slot] = 0L;
+    }
+    
+    // ---- 待修复状态 ----
+    
+    public boolean isPending(int slot) {
+        return pending[slot];
+    }
+    
+    /**
+     * 标记玩家有等待中的修复
+     */
+    void markPending(int slot, int sources, long triggerTime, long triggerTickNumber, long deadlineTick) {
+        if (!pending[slot]) {
+            pendingCount++;
+        }
+        pending[slot] = true;
+        pendingSources[slot] = sources;
+        triggerNanos[slot] = triggerTime;
+        triggerTick[slot] = triggerTickNumber;
+        dueTick[slot] = deadlineTick;
+    }
+    
+    /**
+     * 修改等待中的修复的执行刻
+     */
+    void setDueTick(int slot, long tick) {
+        dueTick[slot] = tick;
+    }
+    
+    /**
+     * 记录防抖静默期的结束刻，修复不会被提前到这之前；未启用防抖时为 0
+     */
+    void setQuietUntil(int slot, long tick) {
+        quietUntilTick[slot] = tick;
+    }
+    
+    /**
+     * 将触发来源合并到等待中的修复
+     */
+    void mergeSources(int slot, int sources) {
+        pendingSources[slot] |= sources;
+    }
+    
+    void clearPending(int slot) {
+        if (pending[slot]) {
+            pendingCount--;
+        }
+        pending[slot] = false;
+        pendingSources[slot] = 0;
+    }
+    
+    public int pendingSources(int slot) {
+        return pendingSources[slot];
+    }
+    
+    public long triggerNanos(int slot) {
+        return triggerNanos[slot];
+    }
+    
+    /**
+     * 记录修复放入时间轮的时间，安排与接收总在同一游戏刻内完成
+     */
+    void setScheduledNanos(int slot, long nanos) {
+        scheduledNanos[slot] = nanos;
+    }
+    
+    public long scheduledNanos(int slot) {
+        return scheduledNanos[slot];
+    }
+    
+    public long triggerTick(int slot) {
+        return triggerTick[slot];
+    }
+    
+    public long dueTick(int slot) {
+        return dueTick[slot];
+    }
+    
+    public long quietUntil(int slot) {
+        return quietUntilTick[slot];
+    }
+    
+    /**
+     * 记录最近一次触发时 {@link FixExecutor#packetBaseline(Object)} 返回的基准
+     */
+    void setPacketBaseline(int slot, long baseline) {
+        packetBaseline[slot] = baseline;
+    }
+    
+    public long packetBaseline(int slot) {
+        return packetBaseline[slot];
+    }
+    
+    public Object attachment(int slot) {
+        return attachments[slot];
+    }
+    
+    void setAttachment(int slot, Object attachment) {
+        attachments[slot] = attachment;
+    }
+    
+    // ---- 会话状态 ----
+    
+    public UUID id(int slot) {
+        return ids[slot];
+    }
+    
+    public String name(int slot) {
+        return names[slot];
+    }
+    
+    public long joinMillis(int slot) {
+        return joinMillis[slot];
+    }
+    
+    public int fixCount(int slot) {
+        return fixCount[slot];
+    }
+    
+    public long lastFixMillis(int slot) {
+        return lastFixMillis[slot];
+    }
+    
+    /**
+     * 记录一次成功的修复
+     */
+    void recordFix(int slot, long nowMillis) {
+        fixCount[slot]++;
+        lastFixMillis[slot] = nowMillis;
+    }
+    
+    // ---- 遍历与统计 ----
+    
+    /**
+     * 槽位数组的长度，配合 {@link #isOccupied(int)} 遍历所有会话
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+    
+    public boolean isOccupied(int slot) {
+        return occupied[slot];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int pendingCount() {
+        return pendingCount;
+    }
+    
+    /**
+     * 删除所有会话，每个槽位的全部状态都清零，之后插入的玩家不会沿用旧会话的计数和时间
+     */
+    void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            clearSlot(slot);
+        }
+        size = 0;
+        pendingCount = 0;
+    }
+}
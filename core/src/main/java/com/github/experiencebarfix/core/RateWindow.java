@@ -0,0 +1,178 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.Arrays;
+
+/**
+ * 最近 1、5、15 分钟的滑动窗口计数器
+ * <p>
+ * 15 分钟按 5 秒划分为环形排列的桶，所有计数放在一个扁平的 {@code long} 数组中，
+ * 记录只是对当前桶的一次加法，不分配对象。计数器只由服务器主线程写入和 {@link #roll 推进}；
+ * 每进入一个新桶，写入线程对已结束的桶求和并整体发布一个不可变的 {@link Snapshot}，
+ * 读者只读取这个快照，同一快照中的各项计数和成功率来自同一时刻，不会混合不同时间的数值。
+ */
+public final class RateWindow {
+    
+    public static final int WINDOW_1M = 0;
+    public static final int WINDOW_5M = 1;
+    public static final int WINDOW_15M = 2;
+    public static final int[] WINDOW_MINUTES = {1, 5, 15};
+    public static final String[] WINDOW_IDS = {"1m", "5m", "15m"};
+    
+    private static final long BUCKET_NANOS = 5_000_000_000L;
+    private static final int BUCKETS_PER_MINUTE = 12;
+    private static final int BUCKETS = 15 * BUCKETS_PER_MINUTE;
+    
+    // 已结束的桶之外还要保存正在计数的当前桶
+    private static final int RING = BUCKETS + 1;
+    
+    private final int metrics;
+    
+    // 第 b 个桶的第 m 项计数位于 b * metrics + m
+    private final long[] buckets;
+    
+    // 当前桶的绝对编号、在数组中的起始位置，以及开始计数时的桶编号
+    private long currentBucket;
+    private int currentOffset;
+    private final long firstBucket;
+    
+    private volatile Snapshot published;
+    
+    /**
+     * @param metrics 每个桶中的计数项数
+     */
+    public RateWindow(int metrics) {
+        this.metrics = metrics;
+        this.buckets = new long[RING * metrics];
+        this.firstBucket = Math.floorDiv(System.nanoTime(), BUCKET_NANOS);
+        this.currentBucket = firstBucket;
+        this.currentOffset = offset(firstBucket);
+        this.published = empty(metrics);
+    }
+    
+    /**
+     * 所有计数为 0 的快照
+     */
+    public static Snapshot empty(int metrics) {
+        return new Snapshot(new long[WINDOW_MINUTES.length][metrics], new int[WINDOW_MINUTES.length]);
+    }
+    
+    private int offset(long bucket) {
+        return (int) Math.floorMod(bucket, (long) RING) * metrics;
+    }
+    
+    /**
+     * 计入当前桶，只能由写入线程调用
+     */
+    public void add(int metric, long amount) {
+        buckets[currentOffset + metric] += amount;
+    }
+    
+    /**
+     * 按时间推进到对应的桶，清空期间跳过的桶；进入新桶时发布新的快照
+     *
+     * @param nowNanos 当前的 {@link System#nanoTime()}
+     * @return 是否发布了新的快照
+     */
+    public boolean roll(long nowNanos) {
+        long bucket = Math.floorDiv(nowNanos, BUCKET_NANOS);
+        if (bucket <= currentBucket) {
+            return false;
+        }
+        
+        long skipped = Math.min(bucket - currentBucket, RING);
+        for (long i = 1; i <= skipped; i++) {
+            int start = offset(currentBucket + i);
+            Arrays.fill(buckets, start, start + metrics, 0L);
+        }
+        currentBucket = bucket;
+        currentOffset = offset(bucket);
+        publish();
+        return true;
+    }
+    
+    /**
+     * 对已结束的桶求和，依次得到 1、5、15 分钟的计数后整体发布
+     */
+    private void publish() {
+        long[][] counts = new long[WINDOW_MINUTES.length][metrics];
+        int[] seconds = new int[WINDOW_MINUTES.length];
+        long completed = Math.min(currentBucket - firstBucket, BUCKETS);
+        long[] sums = new long[metrics];
+        
+        int window = 0;
+        for (int k = 1; k <= BUCKETS && window < WINDOW_MINUTES.length; k++) {
+            if (k <= completed) {
+                int start = offset(currentBucket - k);
+                for (int m = 0; m < metrics; m++) {
+                    sums[m] += buckets[start + m];
+                }
+            }
+            if (k == WINDOW_MINUTES[window] * BUCKETS_PER_MINUTE) {
+                System.arraycopy(sums, 0, counts[window], 0, metrics);
+                seconds[window] = (int) (Math.min(k, completed) * (BUCKET_NANOS / 1_000_000_000L));
+                window++;
+            }
+        }
+        published = new Snapshot(counts, seconds);
+    }
+    
+    /**
+     * 最近发布的快照，可从任意线程读取
+     */
+    public Snapshot snapshot() {
+        return published;
+    }
+    
+    /**
+     * 某一时刻各窗口计数的不可变快照
+     */
+    public static final class Snapshot {
+        
+        private final long[][] counts;
+        private final int[] seconds;
+        
+        private Snapshot(long[][] counts, int[] seconds) {
+            this.counts = counts;
+            this.seconds = seconds;
+        }
+        
+        /**
+         * 窗口内的计数
+         */
+        public long count(int window, int metric) {
+            return counts[window][metric];
+        }
+        
+        /**
+         * 窗口实际覆盖的秒数，服务器启动不足窗口长度时小于窗口长度
+         */
+        public int seconds(int window) {
+            return seconds[window];
+        }
+        
+        /**
+         * 窗口内平均每分钟的计数，尚无完整的桶时为 0
+         */
+        public double perMinute(int window, int metric) {
+            return seconds[window] == 0 ? 0.0 : counts[window][metric] * 60.0 / seconds[window];
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.function.Consumer;
+
+/**
+ * 以游戏刻为单位的时间轮调度器
+ * <p>
+ * 任务按目标刻放入对应的桶中，由服务器刻事件逐刻推进并取出到期任务。
+ * 安排与触发均为 O(1)，链表节点在回收后复用，稳定运行时不产生额外分配。
+ * 超出时间轮跨度的任务会保留在桶中，直到其目标刻真正到达。
+ * <p>
+ * 此类不是线程安全的，只能在服务器主线程上使用。
+ */
+public final class TickTimingWheel<T> {
+
+    /**
+     * 时间轮链表节点
+     */
+    private static final class Node<T> {
+        T payload;
+        long deadline;
+        Node<T> next;
+    }
+
+    private final Node<T>[] heads;
+    private final Node<T>[] tails;
+    private final int mask;
+
+    // 已回收节点的空闲链表
+    private Node<T> freeList;
+
+    // 最后一次推进到的游戏刻
+    private long cursor = Long.MIN_VALUE;
+
+    private int size;
+
+    /**
+     * 创建时间轮，桶数量会向上取整为 2 的幂
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TickTimingWheel(int minBuckets) {
+        int buckets = Integer.highestOneBit(Math.max(2, minBuckets) - 1) << 1;
+        this.heads = (Node<T>[]) new Node[buckets];
+        this.tails = (Node<T>[]) new Node[buckets];
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * 安排任务在指定游戏刻触发
+     */
+    public void schedule(T payload, long deadlineTick) {
+        if (cursor != Long.MIN_VALUE && deadlineTick <= cursor) {
+            // 已经推进过的刻不会再次取出，放到下一刻
+            deadlineTick = cursor + 1;
+        }
+
+        Node<T> node = freeList;
+        if (node != null) {
+            freeList = node.next;
+            node.next = null;
+        } else {
+            node = new Node<>();
+        }
+        node.payload = payload;
+        node.deadline = deadlineTick;
+
+        int bucket = (int) (deadlineTick & mask);
+        if (tails[bucket] == null) {
+            heads[bucket] = node;
+        } else {
+            tails[bucket].next = node;
+        }
+        tails[bucket] = node;
+        size++;
+    }
+
+    /**
+     * 推进时间轮到指定游戏刻，按安排顺序将到期任务交给处理器
+     *
+     * @return 本次触发的任务数量
+     */
+    public int advanceTo(long tick, Consumer<? super T> sink) {
+        if (cursor == Long.MIN_VALUE) {
+            cursor = tick - 1;
+        }
+
+        int fired = 0;
+        // 跳过的刻数超过一整圈时，每个桶只需扫描一次
+        long from = Math.max(cursor + 1, tick - mask);
+        for (long t = from; t <= tick; t++) {
+            // 先推进游标，处理器中重新安排的任务最早落在下一刻
+            cursor = t;
+            fired += drainBucket((int) (t & mask), t, sink);
+        }
+        return fired;
+    }
+
+    private int drainBucket(int bucket, long tick, Consumer<? super T> sink) {
+        Node<T> node = heads[bucket];
+        Node<T> prev = null;
+        int fired = 0;
+
+        while (node != null) {
+            Node<T> next = node.next;
+            if (node.deadline <= tick) {
+                // 先摘除节点再回调，处理器中可以安全地重新安排任务
+                if (prev == null) {
+                    heads[bucket] = next;
+                } else {
+                    prev.next = next;
+                }
+                if (tails[bucket] == node) {
+                    tails[bucket] = prev;
+                }
+
+                T payload = node.payload;
+                recycle(node);
+                size--;
+                fired++;
+                sink.accept(payload);
+            } else {
+                prev = node;
+            }
+            node = next;
+        }
+        return fired;
+    }
+
+    private void recycle(Node<T> node) {
+        node.payload = null;
+        node.next = freeList;
+        freeList = node;
+    }
+
+    /**
+     * 当前等待中的任务数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空所有等待中的任务
+     */
+    public void clear() {
+        for (int i = 0; i < heads.length; i++) {
+            Node<T> node = heads[i];
+            while (node != null) {
+                Node<T> next = node.next;
+                recycle(node);
+                node = next;
+            }
+            heads[i] = null;
+            tails[i] = null;
+        }
+        size = 0;
+        cursor = Long.MIN_VALUE;
+    }
+}
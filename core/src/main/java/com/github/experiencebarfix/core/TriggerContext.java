@@ -0,0 +1,63 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * 一次触发的判断依据，由适配层填写后交给 {@link TriggerPolicy#decide}
+ * <p>
+ * 只在服务器主线程上使用，同一个实例在每次触发时重新填写，不分配对象。
+ */
+public final class TriggerContext {
+    
+    private TriggerSource source;
+    private String from;
+    private String to;
+    private double distance;
+    
+    /**
+     * 填写本次触发的信息
+     *
+     * @param from 出发维度，例如 {@code minecraft:overworld}；未知时为 null
+     * @param to 目标维度；未知时为 null
+     * @param distance 同一维度内的传送距离；跨维度或未知时为 {@link Double#NaN}
+     */
+    public TriggerContext set(TriggerSource source, String from, String to, double distance) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        return this;
+    }
+    
+    public TriggerSource source() {
+        return source;
+    }
+    
+    public String from() {
+        return from;
+    }
+    
+    public String to() {
+        return to;
+    }
+    
+    public double distance() {
+        return distance;
+    }
+}
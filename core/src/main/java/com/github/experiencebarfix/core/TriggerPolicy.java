@@ -0,0 +1,363 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按规则判断每次触发是立即修复、延后修复还是跳过
+ * <p>
+ * 每条规则的格式为 {@code 条件 条件 ... -> 动作}，条件之间为“且”，按顺序取第一条全部满足的规则，
+ * 没有规则匹配时立即修复。可用的条件：
+ * <ul>
+ *   <li>{@code source=teleport_command,entity_teleport} - 触发来源</li>
+ *   <li>{@code from=the_nether}、{@code to=minecraft:the_end} - 出发和目标维度，省略命名空间时为 {@code minecraft}</li>
+ *   <li>{@code distance<16}、{@code distance>=128} - 同一维度内的传送距离，跨维度或距离未知时不满足</li>
+ *   <li>{@code same_dimension}、{@code cross_dimension} - 是否在同一维度内，出发或目标维度未知时都不满足</li>
+ *   <li>{@code *} - 任意触发</li>
+ * </ul>
+ * 动作为 {@code now}、{@code skip} 或 {@code later}（{@code later:40} 指定延后的游戏刻数）。
+ * 已被其他模组取消的传送在进入策略之前就被忽略，因此不提供按是否取消判断的条件。
+ * <p>
+ * 编译后的策略是不可变的，随配置快照一起替换；每条规则的命中次数可从其他线程读取。
+ */
+public final class TriggerPolicy {
+    
+    public static final int NOW = 0;
+    public static final int LATER = 1;
+    public static final int SKIP = 2;
+    public static final String[] ACTION_IDS = {"now", "later", "skip"};
+    public static final String[] ACTION_NAMES = {"立即修复", "延后修复", "跳过"};
+    
+    /** {@code later} 未指定刻数时的延迟 */
+    public static final int DEFAULT_LATER_TICKS = 20;
+    private static final int MAX_LATER_TICKS = 1200;
+    
+    /** 没有任何规则的策略，所有触发都立即修复 */
+    public static final TriggerPolicy EMPTY = new TriggerPolicy(new Rule[0]);
+    
+    // 没有规则匹配时使用
+    private static final Rule FALLTHROUGH = new Rule("*", NOW, 0);
+    
+    private static final TriggerSource[] SOURCES = TriggerSource.values();
+    
+    private final Rule[] rules;
+    private final boolean usesDimensions;
+    private final boolean usesDistance;
+    
+    private TriggerPolicy(Rule[] rules) {
+        this.rules = rules;
+        boolean dimensions = false;
+        boolean distance = false;
+        for (Rule rule : rules) {
+            dimensions |= rule.from != null || rule.to != null || rule.sameDimension >= 0;
+            distance |= rule.hasDistance();
+        }
+        this.usesDimensions = dimensions;
+        this.usesDistance = distance;
+    }
+    
+    /**
+     * 编译规则列表
+     *
+     * @throws IllegalArgumentException 任一规则无法解析时，信息中包含出错的规则
+     */
+    public static TriggerPolicy parse(List<? extends String> lines) {
+        if (lines.isEmpty()) {
+            return EMPTY;
+        }
+        Rule[] rules = new Rule[lines.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = Rule.parse(lines.get(i));
+        }
+        return new TriggerPolicy(rules);
+    }
+    
+    /**
+     * 是否是可以解析的规则，用于配置校验
+     */
+    public static boolean isValidRule(Object line) {
+        if (!(line instanceof String text)) {
+            return false;
+        }
+        try {
+            Rule.parse(text);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * 按顺序取第一条匹配的规则并计入命中次数，没有规则匹配时返回立即修复
+     */
+    public Rule decide(TriggerContext context) {
+        for (Rule rule : rules) {
+            if (rule.matches(context)) {
+                rule.hits.incrementAndGet();
+                return rule;
+            }
+        }
+        return FALLTHROUGH;
+    }
+    
+    /**
+     * 是否有规则用到维度，没有时适配层可以不取得维度名称
+     */
+    public boolean usesDimensions() {
+        return usesDimensions;
+    }
+    
+    /**
+     * 是否有规则用到传送距离
+     */
+    public boolean usesDistance() {
+        return usesDistance;
+    }
+    
+    public List<Rule> rules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+    
+    /**
+     * 编译后的单条规则
+     */
+    public static final class Rule {
+        
+        private final String text;
+        private final int action;
+        private final int delayTicks;
+        
+        // 0 为任意来源
+        private int sources;
+        // null 为任意维度
+        private String[] from;
+        private String[] to;
+        private double minDistance = Double.NEGATIVE_INFINITY;
+        private boolean minInclusive = true;
+        private double maxDistance = Double.POSITIVE_INFINITY;
+        private boolean maxInclusive = true;
+        // -1 为不限，0 为否，1 为是
+        private int sameDimension = -1;
+        
+        private final AtomicLong hits = new AtomicLong();
+        
+        private Rule(String text, int action, int delayTicks) {
+            this.text = text;
+            this.action = action;
+            this.delayTicks = delayTicks;
+        }
+        
+        static Rule parse(String line) {
+            String text = line.trim();
+            int arrow = text.indexOf("->");
+            if (arrow < 0) {
+                throw new IllegalArgumentException("规则缺少 \"->\": " + line);
+            }
+            
+            String actionText = text.substring(arrow + 2).trim().toLowerCase(Locale.ROOT);
+            int action;
+            int delay = 0;
+            if (actionText.equals("now")) {
+                action = NOW;
+            } else if (actionText.equals("skip")) {
+                action = SKIP;
+            } else if (actionText.equals("later") || actionText.startsWith("later:")) {
+                action = LATER;
+                delay = actionText.equals("later") ? DEFAULT_LATER_TICKS : parseTicks(actionText.substring(6), line);
+            } else {
+                throw new IllegalArgumentException("未知的动作 \"" + actionText + "\": " + line);
+            }
+            
+            Rule rule = new Rule(text, action, delay);
+            String conditions = text.substring(0, arrow).trim();
+            if (conditions.isEmpty()) {
+                throw new IllegalArgumentException("规则缺少条件，匹配所有触发请使用 \"*\": " + line);
+            }
+            for (String condition : conditions.split("\\s+")) {
+                rule.addCondition(condition.toLowerCase(Locale.ROOT), line);
+            }
+            return rule;
+        }
+        
+        private static int parseTicks(String value, String line) {
+            try {
+                int ticks = Integer.parseInt(value.trim());
+                if (ticks >= 1 && ticks <= MAX_LATER_TICKS) {
+                    return ticks;
+                }
+            } catch (NumberFormatException ignored) {
+                // 下面统一报告
+            }
+            throw new IllegalArgumentException("延后的游戏刻数应为 1-" + MAX_LATER_TICKS + ": " + line);
+        }
+        
+        private void addCondition(String condition, String line) {
+            switch (condition) {
+                case "*" -> { }
+                case "same_dimension" -> sameDimension = 1;
+                case "cross_dimension" -> sameDimension = 0;
+                case "cancelled", "!cancelled" -> throw new IllegalArgumentException(
+                    "已取消的传送不再进入触发策略，不能使用 cancelled 条件: " + line);
+                default -> {
+                    if (condition.startsWith("source=")) {
+                        sources |= parseSources(condition.substring(7), line);
+                    } else if (condition.startsWith("from=")) {
+                        from = parseDimensions(condition.substring(5), line);
+                    } else if (condition.startsWith("to=")) {
+                        to = parseDimensions(condition.substring(3), line);
+                    } else if (condition.startsWith("distance")) {
+                        parseDistance(condition.substring(8), line);
+                    } else {
+                        throw new IllegalArgumentException("未知的条件 \"" + condition + "\": " + line);
+                    }
+                }
+            }
+        }
+        
+        private static int parseSources(String value, String line) {
+            int mask = 0;
+            for (String id : value.split(",")) {
+                TriggerSource match = null;
+                for (TriggerSource source : SOURCES) {
+                    if (source.name().toLowerCase(Locale.ROOT).equals(id)) {
+                        match = source;
+                    }
+                }
+                if (match == null) {
+                    throw new IllegalArgumentException("未知的触发来源 \"" + id + "\": " + line);
+                }
+                mask |= match.bit();
+            }
+            return mask;
+        }
+        
+        private static String[] parseDimensions(String value, String line) {
+            List<String> dimensions = new ArrayList<>();
+            for (String id : value.split(",")) {
+                if (id.isEmpty()) {
+                    throw new IllegalArgumentException("维度不能为空: " + line);
+                }
+                dimensions.add(id.indexOf(':') >= 0 ? id : "minecraft:" + id);
+            }
+            return dimensions.toArray(new String[0]);
+        }
+        
+        private void parseDistance(String comparison, String line) {
+            if (comparison.length() < 2) {
+                throw new IllegalArgumentException("距离条件应为 distance<N、distance<=N、distance>N 或 distance>=N: " + line);
+            }
+            boolean inclusive = comparison.length() > 1 && comparison.charAt(1) == '=';
+            String number = comparison.substring(inclusive ? 2 : 1);
+            double value;
+            try {
+                value = Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无法解析距离 \"" + number + "\": " + line);
+            }
+            if (comparison.startsWith("<")) {
+                maxDistance = value;
+                maxInclusive = inclusive;
+            } else if (comparison.startsWith(">")) {
+                minDistance = value;
+                minInclusive = inclusive;
+            } else {
+                throw new IllegalArgumentException("距离条件应为 distance<N、distance<=N、distance>N 或 distance>=N: " + line);
+            }
+        }
+        
+        private boolean hasDistance() {
+            return minDistance != Double.NEGATIVE_INFINITY || maxDistance != Double.POSITIVE_INFINITY;
+        }
+        
+        boolean matches(TriggerContext context) {
+            if (sources != 0 && (sources & context.source().bit()) == 0) {
+                return false;
+            }
+            if (!matchesDimension(from, context.from()) || !matchesDimension(to, context.to())) {
+                return false;
+            }
+            if (sameDimension >= 0) {
+                if (context.from() == null || context.to() == null) {
+                    return false;
+                }
+                if (context.from().equals(context.to()) != (sameDimension == 1)) {
+                    return false;
+                }
+            }
+            if (hasDistance()) {
+                double distance = context.distance();
+                if (Double.isNaN(distance)
+                        || (minInclusive ? distance < minDistance : distance <= minDistance)
+                        || (maxInclusive ? distance > maxDistance : distance >= maxDistance)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static boolean matchesDimension(String[] allowed, String dimension) {
+            if (allowed == null) {
+                return true;
+            }
+            if (dimension == null) {
+                return false;
+            }
+            for (String candidate : allowed) {
+                if (candidate.equals(dimension)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * 配置中的规则原文
+         */
+        public String text() {
+            return text;
+        }
+        
+        /**
+         * {@link #NOW}、{@link #LATER} 或 {@link #SKIP}
+         */
+        public int action() {
+            return action;
+        }
+        
+        /**
+         * 延后修复的游戏刻数，其他动作为 0
+         */
+        public int delayTicks() {
+            return delayTicks;
+        }
+        
+        /**
+         * 自策略编译以来的命中次数
+         */
+        public long hits() {
+            return hits.get();
+        }
+    }
+}
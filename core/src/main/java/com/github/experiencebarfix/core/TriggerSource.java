@@ -0,0 +1,80 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+/**
+ * 修复触发来源
+ * <p>
+ * 每个事件只按其最具体的类型归类一次，同一玩家在同一刻内的多个来源以位掩码合并。
+ */
+public enum TriggerSource {
+    TELEPORT_COMMAND("teleport command", "传送指令"),
+    DIMENSION_CHANGE("dimension change", "维度变化"),
+    RESPAWN("respawn", "玩家重生"),
+    ENTITY_TELEPORT("entity teleport", "实体传送");
+    
+    private static final TriggerSource[] VALUES = values();
+    
+    private final String id;
+    private final String displayName;
+    private final int bit;
+    
+    TriggerSource(String id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+        this.bit = 1 << ordinal();
+    }
+    
+    /**
+     * 日志中使用的来源标识
+     */
+    public String id() {
+        return id;
+    }
+    
+    /**
+     * 统计信息中使用的显示名称
+     */
+    public String displayName() {
+        return displayName;
+    }
+    
+    /**
+     * 来源在位掩码中对应的位
+     */
+    public int bit() {
+        return bit;
+    }
+    
+    /**
+     * 将来源位掩码格式化为可读字符串，仅在日志启用时调用
+     */
+    public static String describe(int mask) {
+        StringBuilder builder = new StringBuilder();
+        for (TriggerSource source : VALUES) {
+            if ((mask & source.bit) != 0) {
+                if (builder.length() > 0) {
+                    builder.append('+');
+                }
+                builder.append(source.id);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import java.util.Arrays;
+
+/**
+ * 原版经验等级曲线的查找表
+ * <p>
+ * 预先计算到达每个等级所需的累计经验值，通过二分查找直接由总经验值得到等级和进度，
+ * 不需要像 {@code giveExperiencePoints} 那样逐级累加，也不会触发任何经验事件。
+ * 表格覆盖累计经验不超过 {@link Integer#MAX_VALUE} 的所有等级。
+ */
+public final class XpCurve {
+    
+    // CUMULATIVE[level] 为从 0 级升到该等级所需的累计经验值
+    private static final int[] CUMULATIVE = buildTable();
+    
+    /**
+     * 表格中的最高等级
+     */
+    public static final int MAX_LEVEL = CUMULATIVE.length - 1;
+    
+    private XpCurve() {
+    }
+    
+    private static int[] buildTable() {
+        int[] table = new int[32];
+        long total = 0;
+        int level = 0;
+        while (true) {
+            if (level == table.length) {
+                table = Arrays.copyOf(table, level * 2);
+            }
+            table[level] = (int) total;
+            total += xpNeededForNextLevel(level);
+            if (total > Integer.MAX_VALUE) {
+                return Arrays.copyOf(table, level + 1);
+            }
+            level++;
+        }
+    }
+    
+    /**
+     * 从指定等级升到下一级所需的经验值，与 {@code Player.getXpNeededForNextLevel} 一致
+     */
+    public static int xpNeededForNextLevel(int level) {
+        if (level >= 30) {
+            return 112 + (level - 30) * 9;
+        }
+        return level >= 15 ? 37 + (level - 15) * 5 : 7 + level * 2;
+    }
+    
+    /**
+     * 到达指定等级所需的累计经验值
+     */
+    public static int totalForLevel(int level) {
+        return CUMULATIVE[Math.max(0, Math.min(level, MAX_LEVEL))];
+    }
+    
+    /**
+     * 总经验值对应的等级
+     */
+    public static int levelForTotal(int total) {
+        if (total <= 0) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(CUMULATIVE, total);
+        // 未命中时返回 (-(插入点) - 1)，所在等级为插入点的前一级
+        return index >= 0 ? index : -index - 2;
+    }
+    
+    /**
+     * 总经验值在所在等级内的进度，范围 [0, 1)
+     */
+    public static float progressForTotal(int total) {
+        if (total <= 0) {
+            return 0.0f;
+        }
+        int level = levelForTotal(total);
+        return (total - CUMULATIVE[level]) / (float) xpNeededForNextLevel(level);
+    }
+}
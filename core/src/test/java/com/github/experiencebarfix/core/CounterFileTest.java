@@ -0,0 +1,159 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterFileTest {
+    
+    @TempDir
+    Path dir;
+    
+    private List<Path> backups(Path file) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(file.getFileName() + ".invalid-")).toList();
+        }
+    }
+    
+    /**
+     * 直接改写文件头中的一个整数，模拟其他版本写出的文件
+     */
+    private static void patchInt(Path file, int offset, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, bytes);
+    }
+    
+    @Test
+    void valuesSurviveReopen() throws IOException {
+        Path file = dir.resolve("counters.dat");
+        CounterFile counters = CounterFile.open(file, new String[] {"a", "b"});
+        assertNull(counters.notice());
+        assertEquals(1, counters.opens());
+        counters.add(0, 3);
+        counters.add(1, 5);
+        counters.close();
+        
+        CounterFile reopened = CounterFile.open(file, new String[] {"a", "b"});
+        assertNull(reopened.notice());
+        assertFalse(reopened.uncleanShutdown());
+        assertEquals(2, reopened.opens());
+        assertEquals(3, reopened.get(0));
+        assertEquals(5, reopened.get(1));
+        reopened.close();
+    }
+    
+    @Test
+    void layoutChangeMigratesValuesByName() throws IOException {
+        Path file = dir.resolve("counters.dat");
+        CounterFile counters = CounterFile.open(file, new String[] {"removed", "kept", "moved"});
+        counters.add(0, 1);
+        counters.add(1, 7);
+        counters.add(2, 9);
+        long created = counters.createdMillis();
+        counters.close();
+        
+        CounterFile migrated = CounterFile.open(file, new String[] {"moved", "added", "kept"});
+        assertEquals("计数器布局已变化，已按名称迁移 3 个计数器", migrated.notice());
+        assertEquals(9, migrated.get(0));
+        assertEquals(0, migrated.get(1));
+        assertEquals(7, migrated.get(2));
+        assertEquals(created, migrated.createdMillis());
+        assertEquals(2, migrated.opens());
+        migrated.close();
+        
+        assertEquals(Map.of("moved", 9L, "added", 0L, "kept", 7L), CounterFile.read(file));
+        assertTrue(backups(file).isEmpty());
+    }
+    
+    @Test
+    void unknownVersionIsBackedUpAndRecreated() throws IOException {
+        Path file = dir.resolve("counters.dat");
+        CounterFile counters = CounterFile.open(file, new String[] {"a"});
+        counters.add(0, 42);
+        counters.close();
+        // 偏移 4 为版本号
+        patchInt(file, 4, CounterFile.VERSION + 1);
+        byte[] original = Files.readAllBytes(file);
+        
+        assertThrows(IOException.class, () -> CounterFile.read(file));
+        
+        CounterFile recreated = CounterFile.open(file, new String[] {"a"});
+        List<Path> backups = backups(file);
+        assertEquals(1, backups.size());
+        assertArrayEquals(original, Files.readAllBytes(backups.get(0)));
+        assertEquals("计数器文件无法识别，已改名为 " + backups.get(0).getFileName() + " 并重新创建", recreated.notice());
+        assertEquals(0, recreated.get(0));
+        assertEquals(1, recreated.opens());
+        recreated.close();
+    }
+    
+    @Test
+    void truncatedFileIsBackedUpAndRecreated() throws IOException {
+        Path file = dir.resolve("counters.dat");
+        Files.write(file, new byte[] {'X', 'P', 'F'});
+        
+        CounterFile recreated = CounterFile.open(file, new String[] {"a", "b"});
+        assertEquals(1, backups(file).size());
+        assertTrue(recreated.notice().startsWith("计数器文件无法识别"));
+        assertEquals(2, recreated.size());
+        recreated.close();
+        
+        assertEquals(Map.of("a", 0L, "b", 0L), CounterFile.read(file));
+    }
+    
+    @Test
+    void missingCloseIsReportedAsUncleanShutdown() throws IOException {
+        Path file = dir.resolve("counters.dat");
+        CounterFile counters = CounterFile.open(file, new String[] {"a"});
+        counters.add(0, 2);
+        counters.checkpoint();
+        
+        CounterFile next = CounterFile.open(file, new String[] {"a"});
+        assertTrue(next.uncleanShutdown());
+        assertEquals(2, next.get(0));
+        next.close();
+    }
+    
+    @Test
+    void inMemoryCountersHaveNoPath() {
+        CounterFile counters = CounterFile.inMemory(new String[] {"a", "b"});
+        counters.add(1, 4);
+        assertNull(counters.path());
+        assertEquals(4, counters.get(1));
+        assertEquals(0, counters.get(0));
+    }
+}
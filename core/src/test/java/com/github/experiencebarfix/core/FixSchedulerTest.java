@@ -0,0 +1,260 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixSchedulerTest {
+    
+    /**
+     * 记录每次执行的执行器，可以模拟修复本身的耗时
+     */
+    private static final class RecordingExecutor implements FixExecutor {
+        final List<UUID> executed = new ArrayList<>();
+        final List<Integer> sources = new ArrayList<>();
+        final List<Long> ticks = new ArrayList<>();
+        long currentTick;
+        long workNanos;
+        int batches;
+        
+        @Override
+        public long packetBaseline(Object attachment) {
+            return 0L;
+        }
+        
+        @Override
+        public int execute(UUID playerId, int sources, Object attachment, long packetBaseline, FixTrace trace) {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < workNanos) {
+                Thread.onSpinWait();
+            }
+            executed.add(playerId);
+            this.sources.add(sources);
+            ticks.add(currentTick);
+            return FixResult.PRIMARY;
+        }
+        
+        @Override
+        public void finishBatch() {
+            batches++;
+        }
+    }
+    
+    private RecordingExecutor executor;
+    private FixStatistics stats;
+    private FixScheduler scheduler;
+    
+    @BeforeEach
+    void setUp() {
+        executor = new RecordingExecutor();
+        stats = new FixStatistics();
+        scheduler = new FixScheduler(executor, stats, 8);
+    }
+    
+    private static UUID player(int i) {
+        return new UUID(0xF1EL, i);
+    }
+    
+    private BatchSummary advance(long tick) {
+        executor.currentTick = tick;
+        return scheduler.advance(tick);
+    }
+    
+    private void advanceThrough(long from, long to) {
+        for (long tick = from; tick <= to; tick++) {
+            advance(tick);
+        }
+    }
+    
+    @Test
+    void runsAfterDelay() {
+        advance(0);
+        assertEquals(FixScheduler.SCHEDULED, 
+            scheduler.requestFix(player(1), "a", TriggerSource.RESPAWN, 0, 5, System.nanoTime()));
+        
+        advanceThrough(1, 4);
+        assertTrue(executor.executed.isEmpty());
+        assertEquals(1, scheduler.pendingCount());
+        
+        assertEquals(1, advance(5).count());
+        assertEquals(List.of(5L), executor.ticks);
+        assertEquals(0, scheduler.pendingCount());
+        assertEquals(1, stats.successes());
+    }
+    
+    @Test
+    void triggersForSamePlayerMergeIntoOneFix() {
+        advance(0);
+        UUID id = player(1);
+        long now = System.nanoTime();
+        assertEquals(FixScheduler.SCHEDULED, scheduler.requestFix(id, "a", TriggerSource.TELEPORT_COMMAND, 0, 3, now));
+        assertEquals(FixScheduler.MERGED, scheduler.requestFix(id, "a", TriggerSource.DIMENSION_CHANGE, 1, 3, now));
+        assertEquals(FixScheduler.MERGED, scheduler.requestFix(id, "a", TriggerSource.TELEPORT_COMMAND, 2, 3, now));
+        
+        advanceThrough(1, 10);
+        assertEquals(List.of(id), executor.executed);
+        assertEquals(TriggerSource.TELEPORT_COMMAND.bit() | TriggerSource.DIMENSION_CHANGE.bit(), 
+            executor.sources.get(0));
+        // 不防抖时合并不推迟原定的执行刻
+        assertEquals(List.of(3L), executor.ticks);
+        assertEquals(2, stats.merged());
+        assertEquals(1, stats.attempts());
+    }
+    
+    @Test
+    void debounceWaitsForQuietPeriodAfterLastTrigger() {
+        advance(0);
+        UUID id = player(1);
+        scheduler.requestFix(id, "a", TriggerSource.ENTITY_TELEPORT, 0, 2, 5, 20, System.nanoTime());
+        advanceThrough(1, 3);
+        scheduler.requestFix(id, "a", TriggerSource.ENTITY_TELEPORT, 3, 2, 5, 20, System.nanoTime());
+        
+        advanceThrough(4, 7);
+        assertTrue(executor.executed.isEmpty());
+        advanceThrough(8, 30);
+        assertEquals(List.of(8L), executor.ticks);
+        assertEquals(1, stats.debounced());
+        assertEquals(0, stats.debounceCapped());
+    }
+    
+    @Test
+    void debounceIsCappedByMaxWait() {
+        advance(0);
+        UUID id = player(1);
+        // 每 3 刻传送一次，静默期 5 刻永远等不到，最长等待 8 刻后执行
+        for (long tick = 0; tick <= 6; tick += 3) {
+            advanceThrough(Math.max(1, tick - 2), tick);
+            scheduler.requestFix(id, "a", TriggerSource.ENTITY_TELEPORT, tick, 0, 5, 8, System.nanoTime());
+        }
+        advanceThrough(7, 30);
+        
+        assertEquals(List.of(8L), executor.ticks);
+        assertEquals(1, stats.debounced());
+        assertEquals(1, stats.debounceCapped());
+    }
+    
+    @Test
+    void expediteRunsFixOnceInCurrentTick() {
+        advance(0);
+        UUID id = player(1);
+        scheduler.requestFix(id, "a", TriggerSource.TELEPORT_COMMAND, 0, 20, System.nanoTime());
+        advanceThrough(1, 1);
+        
+        assertTrue(scheduler.expedite(id, 2));
+        // 已经提前到本刻后再次提前不再生效
+        assertFalse(scheduler.expedite(id, 2));
+        advance(2);
+        assertEquals(List.of(2L), executor.ticks);
+        
+        // 原来在第 20 刻的条目到期时被丢弃
+        advanceThrough(3, 30);
+        assertEquals(1, executor.executed.size());
+        assertEquals(1, stats.expedited());
+        assertFalse(scheduler.expedite(id, 31));
+    }
+    
+    @Test
+    void expediteDoesNotSkipQuietPeriod() {
+        advance(0);
+        UUID id = player(1);
+        scheduler.requestFix(id, "a", TriggerSource.TELEPORT_COMMAND, 0, 20, 5, 40, System.nanoTime());
+        
+        assertTrue(scheduler.expedite(id, 1));
+        advanceThrough(1, 4);
+        assertTrue(executor.executed.isEmpty());
+        advanceThrough(5, 30);
+        assertEquals(List.of(5L), executor.ticks);
+    }
+    
+    @Test
+    void maxFixesDefersRestInOrder() {
+        advance(0);
+        for (int i = 0; i < 5; i++) {
+            scheduler.requestFix(player(i), "p" + i, TriggerSource.RESPAWN, 0, 1, System.nanoTime());
+        }
+        
+        executor.currentTick = 1;
+        BatchSummary first = scheduler.advance(1, 2, 0L);
+        assertEquals(2, first.count());
+        assertEquals(3, first.deferred());
+        assertEquals(3, scheduler.backlogSize());
+        // 积压队列中的修复仍算作等待中
+        assertEquals(3, scheduler.pendingCount());
+        
+        // 之后到期的修复排在积压的修复后面
+        scheduler.requestFix(player(9), "late", TriggerSource.RESPAWN, 1, 1, System.nanoTime());
+        executor.currentTick = 2;
+        assertEquals(2, scheduler.advance(2, 2, 0L).count());
+        executor.currentTick = 3;
+        BatchSummary last = scheduler.advance(3, 2, 0L);
+        assertEquals(2, last.count());
+        assertEquals(0, last.deferred());
+        
+        assertEquals(List.of(player(0), player(1), player(2), player(3), player(4), player(9)), executor.executed);
+        assertEquals(List.of(1L, 1L, 2L, 2L, 3L, 3L), executor.ticks);
+        assertEquals(0, scheduler.pendingCount());
+        assertEquals(3, executor.batches);
+    }
+    
+    @Test
+    void timeBudgetStillRunsOneFixPerTick() {
+        advance(0);
+        for (int i = 0; i < 3; i++) {
+            scheduler.requestFix(player(i), "p" + i, TriggerSource.RESPAWN, 0, 1, System.nanoTime());
+        }
+        executor.workNanos = 200_000L;
+        
+        for (long tick = 1; tick <= 3; tick++) {
+            executor.currentTick = tick;
+            BatchSummary summary = scheduler.advance(tick, 0, 100_000L);
+            assertEquals(1, summary.count());
+            assertEquals(3 - tick, summary.deferred());
+        }
+        assertEquals(List.of(player(0), player(1), player(2)), executor.executed);
+    }
+    
+    @Test
+    void deferredFixOfPlayerWhoLeftIsSkipped() {
+        advance(0);
+        scheduler.playerJoined(player(0), "a", 0L, null);
+        scheduler.playerJoined(player(1), "b", 0L, null);
+        scheduler.requestFix(player(0), "a", TriggerSource.RESPAWN, 0, 1, System.nanoTime());
+        scheduler.requestFix(player(1), "b", TriggerSource.RESPAWN, 0, 1, System.nanoTime());
+        
+        executor.currentTick = 1;
+        assertEquals(1, scheduler.advance(1, 1, 0L).deferred());
+        assertTrue(scheduler.playerLeft(player(1)));
+        
+        executor.currentTick = 2;
+        BatchSummary summary = scheduler.advance(2, 1, 0L);
+        assertEquals(0, summary.count());
+        assertEquals(0, summary.deferred());
+        assertEquals(List.of(player(0)), executor.executed);
+        assertEquals(1, stats.failures());
+    }
+}
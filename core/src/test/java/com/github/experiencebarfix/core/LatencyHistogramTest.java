@@ -0,0 +1,110 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    
+    /**
+     * 与一个更大的值一起记录，取第 50 百分位数得到 {@code value} 所在桶的上界，不受最大值截断
+     */
+    private static long bucketUpperBound(long value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        histogram.record(Long.MAX_VALUE);
+        return histogram.percentile(50);
+    }
+    
+    @Test
+    void smallValuesAreExact() {
+        for (long value = 0; value <= 63; value++) {
+            assertEquals(value, bucketUpperBound(value), "值 " + value);
+        }
+    }
+    
+    @Test
+    void bucketEdgesAboveLinearRange() {
+        // 64-127 的子桶宽度为 2，128-255 为 4
+        assertEquals(65, bucketUpperBound(64));
+        assertEquals(65, bucketUpperBound(65));
+        assertEquals(67, bucketUpperBound(66));
+        assertEquals(127, bucketUpperBound(126));
+        assertEquals(127, bucketUpperBound(127));
+        assertEquals(131, bucketUpperBound(128));
+        assertEquals(131, bucketUpperBound(131));
+        assertEquals(135, bucketUpperBound(132));
+    }
+    
+    @Test
+    void relativeErrorStaysWithinSubBucketWidth() {
+        for (long value = 32; value < 1L << 41; value = value * 3 / 2 + 1) {
+            long bound = bucketUpperBound(value);
+            assertTrue(bound >= value && bound - value <= value / 32, "值 " + value + " 的上界 " + bound);
+        }
+    }
+    
+    @Test
+    void valuesBeyondRangeShareLastBucket() {
+        // 最后一个桶的上界为 2^41 - 1，更大的值都计入这个桶
+        long lastBound = (1L << 41) - 1;
+        assertEquals(lastBound, bucketUpperBound(lastBound));
+        assertEquals(lastBound, bucketUpperBound(1L << 41));
+        assertEquals(lastBound, bucketUpperBound(1L << 50));
+    }
+    
+    @Test
+    void percentileIsCappedByExactMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(50, histogram.percentile(50));
+        // 99 所在的桶为 98-99
+        assertEquals(99, histogram.percentile(99));
+        // 100 所在的桶上界为 101，按精确的最大值报告
+        assertEquals(100, histogram.percentile(99.9));
+        assertEquals(100, histogram.percentile(100));
+        assertEquals(100, histogram.max());
+        assertEquals(5050, histogram.sum());
+    }
+    
+    @Test
+    void negativeValuesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-7);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.sum());
+    }
+    
+    @Test
+    void emptyAndResetReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        histogram.record(1234);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.max());
+    }
+}
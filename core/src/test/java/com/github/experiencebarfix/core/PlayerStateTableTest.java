@@ -0,0 +1,152 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerStateTableTest {
+    
+    /**
+     * 空表中插入的第一个条目落在它的起始槽位上，借此找出起始槽位相同的 UUID
+     */
+    private static int homeSlot(UUID id) {
+        return new PlayerStateTable(1).getOrCreate(id, "probe", 0L);
+    }
+    
+    private static List<UUID> idsWithHome(int home, int wanted) {
+        List<UUID> found = new ArrayList<>();
+        for (long i = 0; found.size() < wanted; i++) {
+            UUID id = new UUID(0x7E57L, i);
+            if (homeSlot(id) == home) {
+                found.add(id);
+            }
+        }
+        return found;
+    }
+    
+    @Test
+    void removeAtShiftsWrappedProbeChain() {
+        PlayerStateTable table = new PlayerStateTable(1);
+        int last = table.capacity() - 1;
+        List<UUID> tail = idsWithHome(last, 3);
+        UUID head = idsWithHome(0, 1).get(0);
+        
+        // 三个条目从最后一个槽位绕回到 0 和 1，起始于 0 的条目被挤到 2
+        assertEquals(last, table.getOrCreate(tail.get(0), "a", 1L));
+        assertEquals(0, table.getOrCreate(tail.get(1), "b", 2L));
+        assertEquals(1, table.getOrCreate(tail.get(2), "c", 3L));
+        assertEquals(2, table.getOrCreate(head, "d", 4L));
+        table.markPending(1, TriggerSource.RESPAWN.bit(), 10L, 20L, 30L);
+        
+        table.removeAt(last);
+        
+        assertEquals(-1, table.find(tail.get(0)));
+        assertEquals(last, table.find(tail.get(1)));
+        assertEquals(0, table.find(tail.get(2)));
+        assertEquals(1, table.find(head));
+        assertFalse(table.isOccupied(2));
+        assertEquals(3, table.size());
+        
+        // 移动的条目带着全部状态
+        int moved = table.find(tail.get(2));
+        assertEquals("c", table.name(moved));
+        assertEquals(3L, table.joinMillis(moved));
+        assertTrue(table.isPending(moved));
+        assertEquals(30L, table.dueTick(moved));
+        assertEquals(1, table.pendingCount());
+    }
+    
+    @Test
+    void removeAtKeepsEntriesAtTheirHomeSlot() {
+        PlayerStateTable table = new PlayerStateTable(1);
+        int last = table.capacity() - 1;
+        List<UUID> tail = idsWithHome(last, 2);
+        List<UUID> heads = idsWithHome(0, 2);
+        
+        table.getOrCreate(tail.get(0), "a", 0L);
+        table.getOrCreate(heads.get(0), "b", 0L);
+        table.getOrCreate(tail.get(1), "c", 0L);
+        table.getOrCreate(heads.get(1), "d", 0L);
+        
+        // 删除最后一个槽位后，后面起始于 0 的条目已在自己的起始位置上不动，绕回的条目越过它移入空洞
+        table.removeAt(table.find(tail.get(0)));
+        
+        assertEquals(0, table.find(heads.get(0)));
+        assertEquals(last, table.find(tail.get(1)));
+        assertEquals(1, table.find(heads.get(1)));
+        assertEquals(-1, table.find(tail.get(0)));
+        assertEquals(3, table.size());
+    }
+    
+    @Test
+    void growKeepsEveryEntryAndItsState() {
+        PlayerStateTable table = new PlayerStateTable(1);
+        int initialCapacity = table.capacity();
+        int players = initialCapacity * 2;
+        UUID[] ids = new UUID[players];
+        Object[] attachments = new Object[players];
+        
+        for (int i = 0; i < players; i++) {
+            ids[i] = new UUID(0x6120L, i);
+            attachments[i] = new Object();
+            int slot = table.getOrCreate(ids[i], "player" + i, i);
+            table.setAttachment(slot, attachments[i]);
+            if (i % 3 == 0) {
+                table.markPending(slot, TriggerSource.DIMENSION_CHANGE.bit(), i, i, i + 100L);
+            }
+        }
+        
+        assertTrue(table.capacity() > initialCapacity);
+        assertTrue(table.size() * 2 <= table.capacity());
+        assertEquals(players, table.size());
+        assertEquals((players + 2) / 3, table.pendingCount());
+        for (int i = 0; i < players; i++) {
+            int slot = table.find(ids[i]);
+            assertTrue(slot >= 0);
+            assertEquals(ids[i], table.id(slot));
+            assertEquals("player" + i, table.name(slot));
+            assertEquals(i, table.joinMillis(slot));
+            assertSame(attachments[i], table.attachment(slot));
+            assertEquals(i % 3 == 0, table.isPending(slot));
+            if (i % 3 == 0) {
+                assertEquals(i + 100L, table.dueTick(slot));
+            }
+        }
+    }
+    
+    @Test
+    void getOrCreateReturnsExistingSlot() {
+        PlayerStateTable table = new PlayerStateTable(4);
+        UUID id = UUID.randomUUID();
+        int slot = table.getOrCreate(id, "steve", 1L);
+        
+        assertEquals(slot, table.getOrCreate(id, "steve", 2L));
+        assertEquals(1L, table.joinMillis(slot));
+        assertEquals(1, table.size());
+    }
+}
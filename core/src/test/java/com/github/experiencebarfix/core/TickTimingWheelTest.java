@@ -0,0 +1,135 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickTimingWheelTest {
+    
+    @Test
+    void bucketCountRoundsUpToPowerOfTwo() {
+        TickTimingWheel<String> wheel = new TickTimingWheel<>(3);
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(0, fired::add);
+        
+        // 3 个桶向上取整为 4，目标刻 4 与刻 0 落在同一个桶
+        wheel.schedule("a", 4);
+        wheel.advanceTo(3, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advanceTo(4, fired::add);
+        assertEquals(List.of("a"), fired);
+    }
+    
+    @Test
+    void deadlineBeyondOneTurnWaitsForItsTick() {
+        TickTimingWheel<String> wheel = new TickTimingWheel<>(4);
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(0, fired::add);
+        wheel.schedule("far", 10);
+        wheel.schedule("near", 2);
+        
+        for (long tick = 1; tick < 10; tick++) {
+            wheel.advanceTo(tick, fired::add);
+            // 刻 2 和 6 与刻 10 落在同一个桶，但只有 near 到期
+            assertEquals(tick >= 2 ? List.of("near") : List.of(), fired);
+        }
+        assertEquals(1, wheel.size());
+        
+        wheel.advanceTo(10, fired::add);
+        assertEquals(List.of("near", "far"), fired);
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void skippingMoreThanOneTurnFiresEachTaskOnce() {
+        TickTimingWheel<Integer> wheel = new TickTimingWheel<>(4);
+        List<Integer> fired = new ArrayList<>();
+        wheel.advanceTo(0, fired::add);
+        for (int deadline = 1; deadline <= 9; deadline++) {
+            wheel.schedule(deadline, deadline);
+        }
+        wheel.schedule(100, 100);
+        
+        assertEquals(9, wheel.advanceTo(50, fired::add));
+        assertEquals(9, fired.size());
+        assertTrue(fired.containsAll(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9)));
+        assertEquals(1, wheel.size());
+    }
+    
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        TickTimingWheel<String> wheel = new TickTimingWheel<>(8);
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(5, fired::add);
+        
+        wheel.schedule("late", 3);
+        wheel.schedule("now", 5);
+        assertEquals(0, wheel.advanceTo(5, fired::add));
+        assertTrue(fired.isEmpty());
+        
+        assertEquals(2, wheel.advanceTo(6, fired::add));
+        assertEquals(List.of("late", "now"), fired);
+    }
+    
+    @Test
+    void taskRescheduledFromSinkFiresOnLaterTick() {
+        TickTimingWheel<String> wheel = new TickTimingWheel<>(4);
+        List<String> fired = new ArrayList<>();
+        int[] repeats = {0};
+        wheel.advanceTo(0, fired::add);
+        wheel.schedule("again", 1);
+        wheel.schedule("once", 1);
+        
+        // 处理器在回调中把同一个任务安排在当前刻，它会落到下一刻而不是在本次推进中再次取出
+        long[] current = {0};
+        for (long tick = 1; tick <= 3; tick++) {
+            current[0] = tick;
+            wheel.advanceTo(tick, payload -> {
+                fired.add(payload + "@" + current[0]);
+                if (payload.equals("again") && repeats[0]++ < 2) {
+                    wheel.schedule(payload, current[0]);
+                }
+            });
+        }
+        
+        assertEquals(List.of("again@1", "once@1", "again@2", "again@3"), fired);
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void clearDropsTasksAndResetsCursor() {
+        TickTimingWheel<String> wheel = new TickTimingWheel<>(4);
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(10, fired::add);
+        wheel.schedule("dropped", 12);
+        wheel.clear();
+        assertEquals(0, wheel.size());
+        
+        // 清空后游标重置，较早的目标刻不再被推到旧游标之后
+        wheel.schedule("fresh", 2);
+        wheel.advanceTo(2, fired::add);
+        assertEquals(List.of("fresh"), fired);
+    }
+}
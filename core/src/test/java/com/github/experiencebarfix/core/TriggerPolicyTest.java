@@ -0,0 +1,106 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TriggerPolicyTest {
+    
+    private static String parseError(String rule) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, 
+            () -> TriggerPolicy.parse(List.of("* -> now", rule)));
+        assertTrue(error.getMessage().endsWith(rule), error.getMessage());
+        assertFalse(TriggerPolicy.isValidRule(rule));
+        return error.getMessage();
+    }
+    
+    @Test
+    void rejectsMalformedRules() {
+        assertTrue(parseError("source=respawn now").startsWith("规则缺少 \"->\""));
+        assertTrue(parseError("* -> later:abc").startsWith("延后的游戏刻数应为 1-1200"));
+        assertTrue(parseError("* -> later:0").startsWith("延后的游戏刻数应为 1-1200"));
+        assertTrue(parseError("* -> later:1201").startsWith("延后的游戏刻数应为 1-1200"));
+        assertTrue(parseError("* -> delay").startsWith("未知的动作 \"delay\""));
+        assertTrue(parseError(" -> skip").startsWith("规则缺少条件"));
+        assertTrue(parseError("source=portal -> skip").startsWith("未知的触发来源 \"portal\""));
+        assertTrue(parseError("from= -> skip").startsWith("维度不能为空"));
+        assertTrue(parseError("to=,the_nether -> skip").startsWith("维度不能为空"));
+        assertTrue(parseError("distance=5 -> skip").startsWith("距离条件应为"));
+        assertTrue(parseError("distance< -> skip").startsWith("距离条件应为"));
+        assertTrue(parseError("distance<far -> skip").startsWith("无法解析距离 \"far\""));
+        assertTrue(parseError("sneaking -> skip").startsWith("未知的条件 \"sneaking\""));
+    }
+    
+    @Test
+    void rejectsCancelledConditions() {
+        assertTrue(parseError("cancelled -> skip").startsWith("已取消的传送不再进入触发策略"));
+        assertTrue(parseError("source=entity_teleport !cancelled -> now").startsWith("已取消的传送不再进入触发策略"));
+        assertTrue(parseError("CANCELLED -> skip").startsWith("已取消的传送不再进入触发策略"));
+    }
+    
+    @Test
+    void isValidRuleRejectsNonStrings() {
+        assertFalse(TriggerPolicy.isValidRule(null));
+        assertFalse(TriggerPolicy.isValidRule(42));
+        assertTrue(TriggerPolicy.isValidRule("same_dimension distance<=16 -> skip"));
+    }
+    
+    @Test
+    void emptyListIsEmptyPolicy() {
+        assertSame(TriggerPolicy.EMPTY, TriggerPolicy.parse(List.of()));
+    }
+    
+    @Test
+    void firstMatchingRuleWins() {
+        TriggerPolicy policy = TriggerPolicy.parse(List.of(
+            "source=entity_teleport same_dimension distance<16 -> skip",
+            "to=the_end -> later",
+            "cross_dimension -> later:40"));
+        TriggerContext context = new TriggerContext();
+        
+        TriggerPolicy.Rule rule = policy.decide(context.set(TriggerSource.ENTITY_TELEPORT, 
+            "minecraft:overworld", "minecraft:overworld", 8.0));
+        assertEquals(TriggerPolicy.SKIP, rule.action());
+        
+        rule = policy.decide(context.set(TriggerSource.ENTITY_TELEPORT, 
+            "minecraft:overworld", "minecraft:overworld", 16.0));
+        assertEquals(TriggerPolicy.NOW, rule.action());
+        
+        rule = policy.decide(context.set(TriggerSource.DIMENSION_CHANGE, 
+            "minecraft:overworld", "minecraft:the_end", Double.NaN));
+        assertEquals(TriggerPolicy.LATER, rule.action());
+        assertEquals(TriggerPolicy.DEFAULT_LATER_TICKS, rule.delayTicks());
+        
+        rule = policy.decide(context.set(TriggerSource.DIMENSION_CHANGE, 
+            "minecraft:overworld", "minecraft:the_nether", Double.NaN));
+        assertEquals(40, rule.delayTicks());
+        
+        assertEquals(1, policy.rules().get(0).hits());
+        assertTrue(policy.usesDimensions());
+        assertTrue(policy.usesDistance());
+    }
+}
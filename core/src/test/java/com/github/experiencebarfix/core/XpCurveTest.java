@@ -0,0 +1,88 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XpCurveTest {
+    
+    /**
+     * 原版 Minecraft Wiki 给出的到达等级所需累计经验值，分 0-16、17-31 和 32 级以上三段
+     */
+    private static long vanillaTotal(long level) {
+        if (level <= 16) {
+            return level * level + 6 * level;
+        }
+        if (level <= 31) {
+            // 2.5L² - 40.5L + 360
+            return (5 * level * level - 81 * level + 720) / 2;
+        }
+        // 4.5L² - 162.5L + 2220
+        return (9 * level * level - 325 * level + 4440) / 2;
+    }
+    
+    @Test
+    void cumulativeTableMatchesVanillaFormula() {
+        for (int level = 0; level <= XpCurve.MAX_LEVEL; level++) {
+            assertEquals(vanillaTotal(level), XpCurve.totalForLevel(level), "等级 " + level);
+        }
+    }
+    
+    @Test
+    void tableEndsAtLastLevelThatFitsInInt() {
+        assertTrue(vanillaTotal(XpCurve.MAX_LEVEL) <= Integer.MAX_VALUE);
+        assertTrue(vanillaTotal(XpCurve.MAX_LEVEL + 1) > Integer.MAX_VALUE);
+    }
+    
+    @Test
+    void levelBoundaries() {
+        for (int level = 1; level <= XpCurve.MAX_LEVEL; level++) {
+            int total = XpCurve.totalForLevel(level);
+            assertEquals(level, XpCurve.levelForTotal(total), "恰好到达等级 " + level);
+            assertEquals(level - 1, XpCurve.levelForTotal(total - 1), "差 1 点到达等级 " + level);
+            assertEquals(0.0f, XpCurve.progressForTotal(total), "等级 " + level + " 的起点");
+        }
+        assertEquals(0, XpCurve.levelForTotal(0));
+        assertEquals(0, XpCurve.levelForTotal(-5));
+        assertEquals(XpCurve.MAX_LEVEL, XpCurve.levelForTotal(Integer.MAX_VALUE));
+    }
+    
+    @Test
+    void progressWithinLevel() {
+        // 等级 15 到 16 需要 37 点，16 到 17 需要 42 点，30 到 31 需要 112 点
+        assertEquals(37, XpCurve.xpNeededForNextLevel(15));
+        assertEquals(42, XpCurve.xpNeededForNextLevel(16));
+        assertEquals(112, XpCurve.xpNeededForNextLevel(30));
+        
+        int start = XpCurve.totalForLevel(30);
+        assertEquals(0.5f, XpCurve.progressForTotal(start + 56));
+        float almost = XpCurve.progressForTotal(start + 111);
+        assertTrue(almost > 0.99f && almost < 1.0f);
+        assertEquals(0.0f, XpCurve.progressForTotal(0));
+    }
+    
+    @Test
+    void outOfRangeLevelsAreClamped() {
+        assertEquals(0, XpCurve.totalForLevel(-1));
+        assertEquals(XpCurve.totalForLevel(XpCurve.MAX_LEVEL), XpCurve.totalForLevel(XpCurve.MAX_LEVEL + 10));
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.FixStatistics;
+import com.github.experiencebarfix.core.LatencyHistogram;
+import com.mojang.authlib.GameProfile;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.network.Connection;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.network.protocol.game.ClientboundPlayerPositionPacket;
+import net.minecraft.network.protocol.game.ServerboundAcceptTeleportationPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 传送风暴下的负载测试
+ * <p>
+ * 生成数百个模拟玩家，通过真实的指令和事件总线反复触发传送、维度变化和重生，
+ * 交替测量暂停本模组和启用本模组时的服务器刻耗时，报告每刻增加的毫秒数和修复成功率。
+ * 暂停时把 {@link FixTriggerRouter} 从事件总线上注销，测量的基线不含本模组的任何事件监听。
+ * 位于单独的 gametest 源码集，不打包进模组 jar；使用 {@code ./gradlew runGameTestServer} 运行，玩家数和轮数由系统属性
+ * {@code experiencebarfix.loadtest.players} 和 {@code experiencebarfix.loadtest.rounds} 指定。
+ */
+@GameTestHolder(ExperienceBarFixMod.MODID)
+@PrefixGameTestTemplate(false)
+@Mod.EventBusSubscriber(modid = ExperienceBarFixMod.MODID)
+public class FixLoadGameTests {
+    
+    // Forge 自带的空白 3x3x3 结构
+    private static final String TEMPLATE_NAMESPACE = "forge";
+    private static final String TEMPLATE = "empty3x3x3";
+    private static final int TIMEOUT_TICKS = 2400;
+    
+    // 生成玩家后等待区块和登入流程稳定的游戏刻数
+    private static final int SPAWN_TICKS = 40;
+    // 每个阶段先触发风暴，再等待超过默认的传送确认超时，让修复全部执行完毕
+    private static final int STORM_TICKS = 100;
+    private static final int SETTLE_TICKS = 50;
+    private static final int PHASE_TICKS = STORM_TICKS + SETTLE_TICKS;
+    // 每名玩家每隔几刻触发一次，错开到不同的游戏刻
+    private static final int STRIDE = 5;
+    
+    private static final int MAX_ROUNDS = ((TIMEOUT_TICKS - SPAWN_TICKS) / PHASE_TICKS - 1) / 2;
+    
+    // 当前记录服务器刻耗时的直方图，不在测试中时为 null
+    private static LatencyHistogram tickProbe;
+    private static long tickStartNanos;
+    
+    /**
+     * 传送风暴的类型
+     */
+    private enum Storm {
+        TELEPORT("传送指令风暴"),
+        DIMENSION("维度变化风暴"),
+        RESPAWN("重生风暴");
+        
+        private final String displayName;
+        
+        Storm(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+    
+    @GameTest(templateNamespace = TEMPLATE_NAMESPACE, template = TEMPLATE, timeoutTicks = TIMEOUT_TICKS, batch = "experiencebarfix_teleport_storm")
+    public static void teleportStorm(GameTestHelper helper) {
+        new LoadRun(helper, Storm.TELEPORT).start();
+    }
+    
+    @GameTest(templateNamespace = TEMPLATE_NAMESPACE, template = TEMPLATE, timeoutTicks = TIMEOUT_TICKS, batch = "experiencebarfix_dimension_storm")
+    public static void dimensionStorm(GameTestHelper helper) {
+        new LoadRun(helper, Storm.DIMENSION).start();
+    }
+    
+    @GameTest(templateNamespace = TEMPLATE_NAMESPACE, template = TEMPLATE, timeoutTicks = TIMEOUT_TICKS, batch = "experiencebarfix_respawn_storm")
+    public static void respawnStorm(GameTestHelper helper) {
+        new LoadRun(helper, Storm.RESPAWN).start();
+    }
+    
+    /**
+     * 服务器刻开始，最先执行
+     */
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public static void onTickStart(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            tickStartNanos = System.nanoTime();
+        }
+    }
+    
+    /**
+     * 服务器刻结束，最后执行，因此包含本模组批量修复的耗时
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onTickEnd(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && tickProbe != null && tickStartNanos != 0L) {
+            tickProbe.record(System.nanoTime() - tickStartNanos);
+        }
+    }
+    
+    /**
+     * 一次负载测试
+     * <p>
+     * 第 0 阶段启用本模组预热，不计入结果；之后每轮先暂停、再启用，各测量一个阶段。
+     */
+    private static final class LoadRun {
+        
+        private final GameTestHelper helper;
+        private final Storm storm;
+        private final MinecraftServer server;
+        private final int playerCount;
+        private final int rounds;
+        
+        private final ServerPlayer[] players;
+        private final EmbeddedChannel[] channels;
+        
+        private final LatencyHistogram baseline = new LatencyHistogram();
+        private final LatencyHistogram withMod = new LatencyHistogram();
+        
+        private long attemptsBefore;
+        private long successesBefore;
+        private long failuresBefore;
+        private int tick;
+        
+        LoadRun(GameTestHelper helper, Storm storm) {
+            this.helper = helper;
+            this.storm = storm;
+            this.server = helper.getLevel().getServer();
+            this.playerCount = Math.max(1, Integer.getInteger("experiencebarfix.loadtest.players", 200));
+            this.rounds = Math.min(MAX_ROUNDS, Math.max(1, Integer.getInteger("experiencebarfix.loadtest.rounds", 2)));
+            this.players = new ServerPlayer[playerCount];
+            this.channels = new EmbeddedChannel[playerCount];
+        }
+        
+        void start() {
+            // 上一次测试超时时可能没有恢复
+            setModEnabled(true);
+            tickProbe = null;
+            helper.onEachTick(this::tick);
+        }
+        
+        private void tick() {
+            try {
+                step();
+            } catch (RuntimeException e) {
+                cleanup();
+                throw e;
+            }
+        }
+        
+        private void step() {
+            int t = tick++;
+            if (t == 0) {
+                spawnPlayers();
+                return;
+            }
+            
+            int elapsed = t - SPAWN_TICKS;
+            if (elapsed >= 0) {
+                int phase = elapsed / PHASE_TICKS;
+                int inPhase = elapsed % PHASE_TICKS;
+                if (phase > rounds * 2) {
+                    finish();
+                    return;
+                }
+                if (inPhase == 0) {
+                    beginPhase(phase);
+                }
+                if (inPhase < STORM_TICKS) {
+                    stormTick(inPhase);
+                }
+            }
+            
+            for (EmbeddedChannel channel : channels) {
+                if (channel != null) {
+                    answerTeleports(channel);
+                }
+            }
+        }
+        
+        /**
+         * 模拟客户端：丢弃写出的数据包，对上一刻收到的传送回复确认，往返时间约为一刻
+         */
+        private void answerTeleports(EmbeddedChannel channel) {
+            Object msg;
+            while ((msg = channel.readOutbound()) != null) {
+                if (msg instanceof ClientboundPlayerPositionPacket position) {
+                    channel.writeInbound(new ServerboundAcceptTeleportationPacket(position.getId()));
+                }
+                ReferenceCountUtil.release(msg);
+            }
+        }
+        
+        private void beginPhase(int phase) {
+            if (phase == 1) {
+                // 预热结束，从这里开始统计修复结果
+                FixStatistics stats = ExperienceBarFixer.statistics();
+                attemptsBefore = stats.attempts();
+                successesBefore = stats.successes();
+                failuresBefore = stats.failures();
+            }
+            
+            boolean enabled = phase == 0 || phase % 2 == 0;
+            setModEnabled(enabled);
+            tickProbe = phase == 0 ? null : enabled ? withMod : baseline;
+        }
+        
+        private void spawnPlayers() {
+            ServerLevel level = helper.getLevel();
+            Vec3 origin = helper.absoluteVec(new Vec3(1.5, 2.0, 1.5));
+            for (int i = 0; i < playerCount; i++) {
+                String name = "xpfix_load_" + i;
+                GameProfile profile = new GameProfile(
+                    UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)), name);
+                ServerPlayer player = new ServerPlayer(server, level, profile);
+                
+                // 与原版 GameTestHelper 的模拟玩家相同：连接挂在内存通道上，登入流程和事件照常触发
+                Connection connection = new Connection(PacketFlow.SERVERBOUND);
+                EmbeddedChannel channel = new EmbeddedChannel(connection);
+                channel.attr(Connection.ATTRIBUTE_PROTOCOL).set(ConnectionProtocol.PLAY);
+                server.getPlayerList().placeNewPlayer(connection, player);
+                
+                player.setGameMode(GameType.CREATIVE);
+                player.giveExperienceLevels(i % 50);
+                player.teleportTo(level, origin.x, origin.y, origin.z, 0.0F, 0.0F);
+                players[i] = player;
+                channels[i] = channel;
+            }
+            ExperienceBarFixMod.LOGGER.info("🧪 负载测试 [{}]: 已生成 {} 个模拟玩家, {} 轮", 
+                storm.displayName, playerCount, rounds);
+        }
+        
+        /**
+         * 让本刻轮到的玩家各触发一次
+         */
+        private void stormTick(int inPhase) {
+            for (int i = inPhase % STRIDE; i < playerCount; i += STRIDE) {
+                ServerPlayer player = players[i];
+                switch (storm) {
+                    case TELEPORT -> {
+                        CommandSourceStack source = player.createCommandSourceStack()
+                            .withSuppressedOutput()
+                            .withPermission(4);
+                        server.getCommands().performPrefixedCommand(source, 
+                            (inPhase / STRIDE) % 2 == 0 ? "tp @s ~1 ~ ~" : "tp @s ~-1 ~ ~");
+                    }
+                    case DIMENSION -> {
+                        ServerLevel target = player.level().dimension() == Level.OVERWORLD
+                            ? server.getLevel(Level.NETHER)
+                            : server.overworld();
+                        if (target == null) {
+                            throw new IllegalStateException("测试服务器没有下界维度");
+                        }
+                        player.teleportTo(target, player.getX(), 100.0, player.getZ(), 0.0F, 0.0F);
+                    }
+                    case RESPAWN -> players[i] = server.getPlayerList().respawn(player, true);
+                }
+            }
+        }
+        
+        private void finish() {
+            FixStatistics stats = ExperienceBarFixer.statistics();
+            long attempts = stats.attempts() - attemptsBefore;
+            long successes = stats.successes() - successesBefore;
+            long failures = stats.failures() - failuresBefore;
+            cleanup();
+            
+            long baselineNanos = meanNanos(baseline);
+            long withModNanos = meanNanos(withMod);
+            ExperienceBarFixMod.LOGGER.info("📊 负载测试结果 [{}]: 玩家 {}, 每刻触发 {}, {} 轮", 
+                storm.displayName, playerCount, (playerCount + STRIDE - 1) / STRIDE, rounds);
+            ExperienceBarFixMod.LOGGER.info("  基线 (暂停本模组): 平均 {} ms/刻, p99 {} ms/刻, {} 刻", 
+                FixLog.millis(baselineNanos), FixLog.millis(baseline.percentile(99)), baseline.count());
+            ExperienceBarFixMod.LOGGER.info("  启用本模组: 平均 {} ms/刻, p99 {} ms/刻, {} 刻", 
+                FixLog.millis(withModNanos), FixLog.millis(withMod.percentile(99)), withMod.count());
+            ExperienceBarFixMod.LOGGER.info("  增加: {} ms/刻", FixLog.millis(withModNanos - baselineNanos));
+            ExperienceBarFixMod.LOGGER.info("  修复: 尝试 {}, 成功 {}, 失败 {}, 成功率 {}%", 
+                attempts, successes, failures, FixLog.percent(successes, attempts));
+            
+            helper.assertTrue(attempts > 0, storm.displayName + "没有产生任何修复，请检查配置是否启用了对应的修复");
+            helper.assertTrue(failures == 0, storm.displayName + "中有 " + failures + " 个修复失败");
+            helper.succeed();
+        }
+        
+        private void cleanup() {
+            tickProbe = null;
+            setModEnabled(true);
+            for (int i = 0; i < playerCount; i++) {
+                if (players[i] != null) {
+                    server.getPlayerList().remove(players[i]);
+                    players[i] = null;
+                }
+                if (channels[i] != null) {
+                    channels[i].close();
+                    channels[i] = null;
+                }
+            }
+        }
+        
+        /**
+         * 在事件总线上注册或注销触发入口，重复注册和注销没有效果
+         */
+        private static void setModEnabled(boolean enabled) {
+            if (enabled) {
+                MinecraftForge.EVENT_BUS.register(FixTriggerRouter.class);
+            } else {
+                MinecraftForge.EVENT_BUS.unregister(FixTriggerRouter.class);
+            }
+        }
+        
+        private static long meanNanos(LatencyHistogram histogram) {
+            return histogram.count() == 0 ? 0L : histogram.sum() / histogram.count();
+        }
+    }
+}
@@ -18,8 +18,18 @@
 
 package com.github.experiencebarfix;
 
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
 import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 @Mod.EventBusSubscriber(modid = ExperienceBarFixMod.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public class Config {
@@ -34,6 +44,34 @@ public class Config {
             .comment("修复经验条前的延迟时间，单位为游戏刻 (1-20)")
             .defineInRange("fixDelay", 2, 1, 20);
     
+    public static final ForgeConfigSpec.BooleanValue READINESS_TRIGGER = BUILDER
+            .comment("在客户端确认传送后立即修复，不再等待固定的 fixDelay；维度变化和重生还会等待玩家所在区块发送完毕")
+            .define("readinessTrigger", false);
+    
+    public static final ForgeConfigSpec.IntValue READINESS_TIMEOUT = BUILDER
+            .comment("等待客户端确认传送的最长时间，单位为游戏刻；超时后仍会执行修复 (5-200)")
+            .defineInRange("readinessTimeout", 40, 5, 200);
+    
+    public static final ForgeConfigSpec.BooleanValue TELEPORT_COMMIT_CHECK = BUILDER
+            .comment("传送指令和实体传送在刻结束时确认玩家的位置或所在世界确实改变后才安排修复，被改回原地或没有找到落脚点的传送不再修复")
+            .define("teleportCommitCheck", true);
+    
+    public static final ForgeConfigSpec.IntValue DEBOUNCE_TICKS = BUILDER
+            .comment("每名玩家的防抖静默期，单位为游戏刻；等待修复期间的新触发把修复推迟到最后一次触发后的这么多刻，0 为关闭 (0-100)")
+            .defineInRange("debounceTicks", 0, 0, 100);
+    
+    public static final ForgeConfigSpec.IntValue DEBOUNCE_MAX_TICKS = BUILDER
+            .comment("防抖时从一串触发中的第一次到执行修复的最长时间，单位为游戏刻，持续传送的玩家也会按这个间隔得到修复 (1-1200)")
+            .defineInRange("debounceMaxTicks", 100, 1, 1200);
+    
+    public static final ForgeConfigSpec.IntValue TICK_BUDGET_FIXES = BUILDER
+            .comment("每个游戏刻最多执行的修复数，超出的修复按到期顺序留到之后的游戏刻，0 为不限制 (0-10000)")
+            .defineInRange("tickBudgetFixes", 0, 0, 10000);
+    
+    public static final ForgeConfigSpec.IntValue TICK_BUDGET_MICROS = BUILDER
+            .comment("每个游戏刻执行修复的时间预算，单位为微秒，用完后剩余的修复留到之后的游戏刻；每刻至少执行一个修复，0 为不限制 (0-50000)")
+            .defineInRange("tickBudgetMicros", 0, 0, 50000);
+    
     public static final ForgeConfigSpec.BooleanValue FALLBACK_METHOD = BUILDER
             .comment("当主要修复方法失败时使用备用方法")
             .define("fallbackMethod", true);
@@ -72,5 +110,132 @@ public class Config {
             .comment("在玩家重生时修复经验条")
             .define("fixRespawn", true);
     
+    // HUD 重新同步配置部分：与经验条一起合并发送的其他 HUD 状态
+    public static final ForgeConfigSpec.BooleanValue RESYNC_HEALTH = BUILDER
+            .comment("修复经验条时同时重新同步生命值、饥饿值和饱和度")
+            .define("resyncHealth", false);
+    
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> RESYNC_HEALTH_SOURCES = BUILDER
+            .comment("触发生命值重新同步的来源: teleport_command, dimension_change, respawn, entity_teleport")
+            .defineList("resyncHealthSources", List.of("dimension_change", "respawn"), Config::isSourceId);
+    
+    public static final ForgeConfigSpec.BooleanValue RESYNC_EFFECTS = BUILDER
+            .comment("修复经验条时同时重新同步状态效果")
+            .define("resyncEffects", false);
+    
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> RESYNC_EFFECTS_SOURCES = BUILDER
+            .comment("触发状态效果重新同步的来源: teleport_command, dimension_change, respawn, entity_teleport")
+            .defineList("resyncEffectsSources", List.of("dimension_change", "respawn"), Config::isSourceId);
+    
+    public static final ForgeConfigSpec.BooleanValue RESYNC_ABILITIES = BUILDER
+            .comment("修复经验条时同时重新同步飞行、无敌等玩家能力")
+            .define("resyncAbilities", false);
+    
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> RESYNC_ABILITIES_SOURCES = BUILDER
+            .comment("触发玩家能力重新同步的来源: teleport_command, dimension_change, respawn, entity_teleport")
+            .defineList("resyncAbilitiesSources", List.of("dimension_change", "respawn"), Config::isSourceId);
+    
+    // 触发策略配置部分
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> TRIGGER_RULES = BUILDER
+            .comment("触发策略规则，按顺序取第一条匹配的规则，没有匹配时立即修复。格式: 条件 条件 ... -> now|later|later:刻数|skip",
+                     "条件: source=来源[,来源]  from=维度  to=维度  distance<N  distance>=N  same_dimension  cross_dimension  *",
+                     "已被其他模组取消的传送在进入策略之前就被忽略，不能使用 cancelled 条件",
+                     "例如: \"source=entity_teleport same_dimension distance<16 -> skip\"")
+            .defineList("triggerRules", List.of(), TriggerPolicy::isValidRule);
+    
+    // 监控端点配置部分
+    public static final ForgeConfigSpec.BooleanValue METRICS_ENABLED = BUILDER
+            .comment("启用内置的 OpenMetrics (Prometheus) 监控端点")
+            .define("metricsEnabled", false);
+    
+    public static final ForgeConfigSpec.ConfigValue<String> METRICS_HOST = BUILDER
+            .comment("监控端点绑定的地址，默认只允许本机访问")
+            .define("metricsHost", "127.0.0.1");
+    
+    public static final ForgeConfigSpec.IntValue METRICS_PORT = BUILDER
+            .comment("监控端点的端口 (1024-65535)")
+            .defineInRange("metricsPort", 9464, 1024, 65535);
+    
+    // 事件日志配置部分
+    public static final ForgeConfigSpec.BooleanValue JOURNAL_ENABLED = BUILDER
+            .comment("启用异步修复事件日志，写入 logs/experiencebarfix/ 下按天和大小滚动的 gzip 压缩 JSONL 文件；启用后每刻的修复成功汇总不再输出到服务器日志")
+            .define("journalEnabled", false);
+    
+    public static final ForgeConfigSpec.IntValue JOURNAL_CAPACITY = BUILDER
+            .comment("事件日志缓冲区的容量，单位为条；写入线程跟不上时丢弃新记录并计数 (1024-1048576)")
+            .defineInRange("journalCapacity", 16384, 1024, 1048576);
+    
     public static final ForgeConfigSpec SPEC = BUILDER.build();
+    
+    // 当前生效的配置快照，加载或重载时整体替换
+    private static volatile ConfigSnapshot snapshot = ConfigSnapshot.defaults();
+    
+    // 配置变化监听器，参数为 (旧快照, 新快照)
+    private static final List<BiConsumer<ConfigSnapshot, ConfigSnapshot>> reloadListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 是否是有效的触发来源标识
+     */
+    private static boolean isSourceId(Object value) {
+        if (value instanceof String id) {
+            for (TriggerSource source : TriggerSource.values()) {
+                if (sourceId(source).equals(id)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 触发来源在配置文件中的标识
+     */
+    static String sourceId(TriggerSource source) {
+        return source.name().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 获取当前生效的配置快照
+     */
+    public static ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * 注册配置变化监听器，配置加载或重载后调用
+     */
+    public static void addReloadListener(BiConsumer<ConfigSnapshot, ConfigSnapshot> listener) {
+        reloadListeners.add(listener);
+    }
+    
+    @SubscribeEvent
+    public static void onLoad(ModConfigEvent.Loading event) {
+        refresh(event.getConfig());
+    }
+    
+    @SubscribeEvent
+    public static void onReload(ModConfigEvent.Reloading event) {
+        refresh(event.getConfig());
+    }
+    
+    /**
+     * 重新构建配置快照并通知监听器
+     */
+    private static void refresh(ModConfig config) {
+        if (config.getSpec() != SPEC) {
+            return;
+        }
+        
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot current = ConfigSnapshot.load();
+        snapshot = current;
+        
+        for (BiConsumer<ConfigSnapshot, ConfigSnapshot> listener : reloadListeners) {
+            try {
+                listener.accept(previous, current);
+            } catch (Exception e) {
+                ExperienceBarFixMod.LOGGER.error("❌ 应用配置变化时发生错误:", e);
+            }
+        }
+    }
 }
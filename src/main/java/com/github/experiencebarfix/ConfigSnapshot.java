@@ -0,0 +1,159 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
+import net.minecraftforge.common.ForgeConfigSpec;
+
+import java.util.List;
+
+/**
+ * 不可变的配置快照
+ * <p>
+ * 在配置加载或重载时由 {@link Config} 一次性构建，热路径通过 {@link Config#snapshot()}
+ * 读取这里的普通 final 字段，不再经过 ForgeConfigSpec 的查找。
+ */
+public final class ConfigSnapshot {
+    
+    public final boolean enabled;
+    public final int fixDelay;
+    public final boolean readinessTrigger;
+    public final int readinessTimeout;
+    public final boolean teleportCommitCheck;
+    public final int debounceTicks;
+    public final int debounceMaxTicks;
+    public final int tickBudgetFixes;
+    public final long tickBudgetNanos;
+    public final boolean fallbackMethod;
+    
+    public final boolean debugLogging;
+    public final boolean performanceLogging;
+    public final boolean statisticsLogging;
+    public final int statisticsInterval;
+    public final boolean playerTrackingLogging;
+    public final boolean errorDetailsLogging;
+    
+    public final boolean fixDimensionChange;
+    public final boolean fixRespawn;
+    // 经验条修复处理的触发来源位掩码
+    public final int experienceSources;
+    
+    public final boolean resyncHealth;
+    public final int resyncHealthSources;
+    public final boolean resyncEffects;
+    public final int resyncEffectsSources;
+    public final boolean resyncAbilities;
+    public final int resyncAbilitiesSources;
+    
+    // 编译后的触发策略
+    public final TriggerPolicy triggerPolicy;
+    
+    public final boolean metricsEnabled;
+    public final String metricsHost;
+    public final int metricsPort;
+    
+    public final boolean journalEnabled;
+    public final int journalCapacity;
+    
+    private ConfigSnapshot(boolean useDefaults) {
+        this.enabled = read(Config.ENABLED, useDefaults);
+        this.fixDelay = read(Config.FIX_DELAY, useDefaults);
+        this.readinessTrigger = read(Config.READINESS_TRIGGER, useDefaults);
+        this.readinessTimeout = read(Config.READINESS_TIMEOUT, useDefaults);
+        this.teleportCommitCheck = read(Config.TELEPORT_COMMIT_CHECK, useDefaults);
+        this.debounceTicks = read(Config.DEBOUNCE_TICKS, useDefaults);
+        this.debounceMaxTicks = read(Config.DEBOUNCE_MAX_TICKS, useDefaults);
+        this.tickBudgetFixes = read(Config.TICK_BUDGET_FIXES, useDefaults);
+        this.tickBudgetNanos = read(Config.TICK_BUDGET_MICROS, useDefaults) * 1_000L;
+        this.fallbackMethod = read(Config.FALLBACK_METHOD, useDefaults);
+        
+        this.debugLogging = read(Config.DEBUG_LOGGING, useDefaults);
+        this.performanceLogging = read(Config.PERFORMANCE_LOGGING, useDefaults);
+        this.statisticsLogging = read(Config.STATISTICS_LOGGING, useDefaults);
+        this.statisticsInterval = read(Config.STATISTICS_INTERVAL, useDefaults);
+        this.playerTrackingLogging = read(Config.PLAYER_TRACKING_LOGGING, useDefaults);
+        this.errorDetailsLogging = read(Config.ERROR_DETAILS_LOGGING, useDefaults);
+        
+        this.fixDimensionChange = read(Config.FIX_DIMENSION_CHANGE, useDefaults);
+        this.fixRespawn = read(Config.FIX_RESPAWN, useDefaults);
+        this.experienceSources = TriggerSource.TELEPORT_COMMAND.bit() | TriggerSource.ENTITY_TELEPORT.bit()
+            | (fixDimensionChange ? TriggerSource.DIMENSION_CHANGE.bit() : 0)
+            | (fixRespawn ? TriggerSource.RESPAWN.bit() : 0);
+        
+        this.resyncHealth = read(Config.RESYNC_HEALTH, useDefaults);
+        this.resyncHealthSources = sourceMask(read(Config.RESYNC_HEALTH_SOURCES, useDefaults));
+        this.resyncEffects = read(Config.RESYNC_EFFECTS, useDefaults);
+        this.resyncEffectsSources = sourceMask(read(Config.RESYNC_EFFECTS_SOURCES, useDefaults));
+        this.resyncAbilities = read(Config.RESYNC_ABILITIES, useDefaults);
+        this.resyncAbilitiesSources = sourceMask(read(Config.RESYNC_ABILITIES_SOURCES, useDefaults));
+        
+        this.triggerPolicy = compilePolicy(read(Config.TRIGGER_RULES, useDefaults));
+        
+        this.metricsEnabled = read(Config.METRICS_ENABLED, useDefaults);
+        this.metricsHost = read(Config.METRICS_HOST, useDefaults);
+        this.metricsPort = read(Config.METRICS_PORT, useDefaults);
+        
+        this.journalEnabled = read(Config.JOURNAL_ENABLED, useDefaults);
+        this.journalCapacity = read(Config.JOURNAL_CAPACITY, useDefaults);
+    }
+    
+    /**
+     * 使用配置规范中的默认值构建快照，用于配置文件加载之前
+     */
+    static ConfigSnapshot defaults() {
+        return new ConfigSnapshot(true);
+    }
+    
+    /**
+     * 从已加载的配置文件构建快照
+     */
+    static ConfigSnapshot load() {
+        return new ConfigSnapshot(false);
+    }
+    
+    /**
+     * 将配置中的来源标识列表转换为位掩码
+     */
+    private static int sourceMask(List<? extends String> ids) {
+        int mask = 0;
+        for (TriggerSource source : TriggerSource.values()) {
+            if (ids.contains(Config.sourceId(source))) {
+                mask |= source.bit();
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * 编译触发策略；配置校验已经排除了无法解析的规则，这里只防御意外情况
+     */
+    private static TriggerPolicy compilePolicy(List<? extends String> rules) {
+        try {
+            return TriggerPolicy.parse(rules);
+        } catch (IllegalArgumentException e) {
+            ExperienceBarFixMod.LOGGER.error("❌ 触发策略规则无效，所有触发将立即修复: {}", e.getMessage());
+            return TriggerPolicy.EMPTY;
+        }
+    }
+    
+    private static <T> T read(ForgeConfigSpec.ConfigValue<T> value, boolean useDefaults) {
+        return useDefaults ? value.getDefault() : value.get();
+    }
+}
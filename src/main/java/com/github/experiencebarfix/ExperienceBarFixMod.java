@@ -18,8 +18,10 @@
 
 package com.github.experiencebarfix;
 
+import com.github.experiencebarfix.core.FixFlightEvents;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
 import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.ModLoadingContext;
@@ -34,6 +36,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 @Mod(ExperienceBarFixMod.MODID)
@@ -47,9 +50,18 @@ public class ExperienceBarFixMod {
     // 日志格式化器
     private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
-    // 统计信息调度器
+    // 统计信息调度器，服务器启动时创建、停止时关闭；同一 JVM 中再次启动服务器（例如单人游戏）时重新创建
     private static ScheduledExecutorService statisticsScheduler;
     
+    // 模组设置是否已完成，首次加载配置发生在设置之前
+    private static volatile boolean setupComplete;
+    
+    // 当前的统计信息定时任务，配置变化时重新安排
+    private static ScheduledFuture<?> statisticsTask;
+    
+    // 计数器文件检查点间隔（秒）
+    private static final long COUNTER_CHECKPOINT_SECONDS = 30;
+    
     public ExperienceBarFixMod() {
         logModStartup();
         
@@ -58,6 +70,7 @@ public class ExperienceBarFixMod {
         
         // 注册配置文件
         ModLoadingContext.get().registerConfig(ModConfig.Type.COMMON, Config.SPEC);
+        Config.addReloadListener(this::onConfigChanged);
         
         // 注册服务器和其他我们感兴趣的游戏事件
         MinecraftForge.EVENT_BUS.register(this);
@@ -91,13 +104,18 @@ public class ExperienceBarFixMod {
         logSetupStart();
         
         try {
-            // 注册经验条修复器
-            MinecraftForge.EVENT_BUS.register(new ExperienceBarFixer());
-            LOGGER.info("✓ 经验条修复器已成功注册");
+            // 经验条修复器和触发路由通过 @Mod.EventBusSubscriber 自动注册，此处不再重复注册
+            LOGGER.info("✓ 经验条修复器已就绪");
             
-            // 初始化统计信息调度器
-            initializeStatisticsScheduler();
+            // 注册 JFR 事件，未开启记录时几乎没有开销
+            try {
+                FixFlightEvents.register();
+                LOGGER.info("✓ JFR 事件已注册");
+            } catch (Exception | LinkageError e) {
+                LOGGER.warn("⚠️ 无法注册 JFR 事件: {}", e.getMessage());
+            }
             
+            setupComplete = true;
             logSetupComplete();
             
         } catch (Exception e) {
@@ -129,32 +147,107 @@ public class ExperienceBarFixMod {
      * 记录配置状态
      */
     private void logConfigurationStatus() {
+        ConfigSnapshot config = Config.snapshot();
         LOGGER.info("当前配置状态:");
-        LOGGER.info("  - 功能启用: {}", Config.ENABLED.get() ? "✓ 是" : "✗ 否");
-        LOGGER.info("  - 修复延迟: {} 游戏刻", Config.FIX_DELAY.get());
-        LOGGER.info("  - 备用方法: {}", Config.FALLBACK_METHOD.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 维度变化修复: {}", Config.FIX_DIMENSION_CHANGE.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 重生修复: {}", Config.FIX_RESPAWN.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 调试日志: {}", Config.DEBUG_LOGGING.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 性能日志: {}", Config.PERFORMANCE_LOGGING.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 统计日志: {}", Config.STATISTICS_LOGGING.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 玩家跟踪日志: {}", Config.PLAYER_TRACKING_LOGGING.get() ? "✓ 启用" : "✗ 禁用");
-        LOGGER.info("  - 详细错误日志: {}", Config.ERROR_DETAILS_LOGGING.get() ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 功能启用: {}", config.enabled ? "✓ 是" : "✗ 否");
+        LOGGER.info("  - 修复延迟: {} 游戏刻", config.fixDelay);
+        LOGGER.info("  - 传送确认触发: {}", config.readinessTrigger 
+            ? "✓ 启用 (最长等待 " + config.readinessTimeout + " 游戏刻)" : "✗ 禁用");
+        LOGGER.info("  - 传送落地检查: {}", config.teleportCommitCheck ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 防抖: {}", config.debounceTicks > 0 
+            ? "✓ 启用 (静默 " + config.debounceTicks + " 游戏刻, 最长 " + config.debounceMaxTicks + " 游戏刻)" : "✗ 禁用");
+        LOGGER.info("  - 每刻预算: {} 个修复, {}", 
+            config.tickBudgetFixes > 0 ? Integer.toString(config.tickBudgetFixes) : "不限", 
+            config.tickBudgetNanos > 0 ? config.tickBudgetNanos / 1_000 + " 微秒" : "不限时间");
+        LOGGER.info("  - 备用方法: {}", config.fallbackMethod ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 触发策略: {} 条规则", config.triggerPolicy.rules().size());
+        LOGGER.info("  - 维度变化修复: {}", config.fixDimensionChange ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 重生修复: {}", config.fixRespawn ? "✓ 启用" : "✗ 禁用");
+        String hudModules = HudResyncRegistry.enabled(config);
+        LOGGER.info("  - HUD 重新同步: {}", hudModules.isEmpty() ? "✗ 禁用" : "✓ 启用 (" + hudModules + ")");
+        LOGGER.info("  - 调试日志: {}", config.debugLogging ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 性能日志: {}", config.performanceLogging ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 统计日志: {}", config.statisticsLogging ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 玩家跟踪日志: {}", config.playerTrackingLogging ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 详细错误日志: {}", config.errorDetailsLogging ? "✓ 启用" : "✗ 禁用");
+        LOGGER.info("  - 监控端点: {}", config.metricsEnabled 
+            ? "✓ 启用 (" + config.metricsHost + ":" + config.metricsPort + ")" : "✗ 禁用");
+        LOGGER.info("  - 事件日志: {}", config.journalEnabled 
+            ? "✓ 启用 (缓冲区 " + config.journalCapacity + " 条)" : "✗ 禁用");
+    }
+    
+    /**
+     * 配置加载或重载后应用变化，无需重启服务器
+     */
+    private void onConfigChanged(ConfigSnapshot previous, ConfigSnapshot current) {
+        if (!setupComplete) {
+            // 首次加载发生在设置之前，组件初始化时会直接读取快照
+            return;
+        }
+        
+        LOGGER.info("🔄 配置已重新加载");
+        logConfigurationStatus();
+        
+        if (previous.statisticsLogging != current.statisticsLogging
+                || previous.statisticsInterval != current.statisticsInterval) {
+            scheduleStatistics(current);
+        }
+        
+        MetricsEndpoint.reload(current);
+        FixJournalWriter.reload(current);
     }
     
     /**
      * 初始化统计信息调度器
      */
-    private void initializeStatisticsScheduler() {
-        if (Config.STATISTICS_LOGGING.get()) {
-            statisticsScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "ExperienceBarFix-Statistics");
-                t.setDaemon(true);
-                return t;
-            });
-            
-            long intervalMinutes = Config.STATISTICS_INTERVAL.get();
-            statisticsScheduler.scheduleAtFixedRate(
+    private synchronized void initializeStatisticsScheduler() {
+        if (statisticsScheduler != null && !statisticsScheduler.isShutdown()) {
+            return;
+        }
+        statisticsScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ExperienceBarFix-Statistics");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        scheduleStatistics(Config.snapshot());
+        
+        // 计数器在内存映射中原地更新，定期刷到磁盘，崩溃时最多丢失一个间隔内的计数
+        statisticsScheduler.scheduleWithFixedDelay(
+            this::checkpointCounters, 
+            COUNTER_CHECKPOINT_SECONDS, 
+            COUNTER_CHECKPOINT_SECONDS, 
+            TimeUnit.SECONDS
+        );
+    }
+    
+    /**
+     * 计数器文件检查点
+     */
+    private void checkpointCounters() {
+        try {
+            ExperienceBarFixer.checkpointCounters();
+        } catch (Exception e) {
+            LOGGER.warn("⚠️ 写入计数器文件检查点时发生错误: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 按配置安排统计信息任务，已有任务会先被取消
+     */
+    private synchronized void scheduleStatistics(ConfigSnapshot config) {
+        if (statisticsScheduler == null || statisticsScheduler.isShutdown()) {
+            return;
+        }
+        
+        if (statisticsTask != null) {
+            statisticsTask.cancel(false);
+            statisticsTask = null;
+        }
+        
+        if (config.statisticsLogging) {
+            long intervalMinutes = config.statisticsInterval;
+            statisticsTask = statisticsScheduler.scheduleAtFixedRate(
                 this::logStatistics, 
                 intervalMinutes, 
                 intervalMinutes, 
@@ -181,6 +274,15 @@ public class ExperienceBarFixMod {
         }
     }
     
+    /**
+     * 服务器开始启动事件
+     */
+    @SubscribeEvent
+    public void onServerStarting(ServerStartingEvent event) {
+        // 上一次服务器停止时调度器已关闭，每次启动都重新创建
+        initializeStatisticsScheduler();
+    }
+    
     /**
      * 服务器启动事件
      */
@@ -188,7 +290,9 @@ public class ExperienceBarFixMod {
     public void onServerStarted(ServerStartedEvent event) {
         LOGGER.info("🚀 服务器已启动 - {} 已激活!", MOD_NAME);
         LOGGER.info("服务器启动时间: {}", getCurrentTimeFormatted());
-        ExperienceBarFixer.onServerStarted();
+        ExperienceBarFixer.onServerStarted(event.getServer());
+        MetricsEndpoint.start(Config.snapshot());
+        FixJournalWriter.start(Config.snapshot());
     }
     
     /**
@@ -213,12 +317,22 @@ public class ExperienceBarFixMod {
             }
         }
         
+        // 停止监控端点
+        MetricsEndpoint.shutdown();
+        
         // 清理修复器资源
         ExperienceBarFixer.onServerStopping();
         
+        // 写出剩余的修复事件并关闭事件日志
+        FixJournalWriter.shutdown();
+        
         // 记录最终统计信息
         logFinalStatistics();
         
+        // 统计线程已停止，最后一次把计数器刷到磁盘后标记为正常关闭
+        checkpointCounters();
+        ExperienceBarFixer.closeCounters();
+        
         LOGGER.info("✓ {} 清理完成", MOD_NAME);
         LOGGER.info("服务器停止时间: {}", getCurrentTimeFormatted());
     }
@@ -239,21 +353,11 @@ public class ExperienceBarFixMod {
         return LocalDateTime.now().format(LOG_TIME_FORMAT);
     }
     
-    /**
-     * 记录性能信息的便捷方法
-     */
-    public static void logPerformance(String operation, long durationNanos) {
-        if (Config.PERFORMANCE_LOGGING.get()) {
-            double durationMs = durationNanos / 1_000_000.0;
-            LOGGER.info("⏱️ 性能: {} 耗时 {:.2f}ms", operation, durationMs);
-        }
-    }
-    
     /**
      * 记录详细错误信息的便捷方法
      */
     public static void logDetailedError(String context, Exception e) {
-        if (Config.ERROR_DETAILS_LOGGING.get()) {
+        if (Config.snapshot().errorDetailsLogging) {
             LOGGER.error("❌ 详细错误 [{}]: {}", context, e.getMessage());
             LOGGER.error("异常类型: {}", e.getClass().getSimpleName());
             LOGGER.error("堆栈跟踪:", e);
@@ -261,13 +365,4 @@ public class ExperienceBarFixMod {
             LOGGER.error("❌ 错误 [{}]: {}", context, e.getMessage());
         }
     }
-    
-    /**
-     * 记录玩家跟踪信息的便捷方法
-     */
-    public static void logPlayerTracking(String action, String playerName, String details) {
-        if (Config.PLAYER_TRACKING_LOGGING.get()) {
-            LOGGER.info("👤 玩家跟踪 [{}]: {} - {}", action, playerName, details);
-        }
-    }
 }
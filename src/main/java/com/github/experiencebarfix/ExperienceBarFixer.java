@@ -18,51 +18,98 @@
 
 package com.github.experiencebarfix;
 
+import com.github.experiencebarfix.core.BatchSummary;
+import com.github.experiencebarfix.core.CounterFile;
+import com.github.experiencebarfix.core.FixExecutor;
+import com.github.experiencebarfix.core.FixFlightEvents;
+import com.github.experiencebarfix.core.FixJournal;
+import com.github.experiencebarfix.core.FixResult;
+import com.github.experiencebarfix.core.FixScheduler;
+import com.github.experiencebarfix.core.FixSnapshot;
+import com.github.experiencebarfix.core.FixStatistics;
+import com.github.experiencebarfix.core.FixTrace;
+import com.github.experiencebarfix.core.LatencyHistogram;
+import com.github.experiencebarfix.core.OpenMetricsWriter;
+import com.github.experiencebarfix.core.PlayerStateTable;
+import com.github.experiencebarfix.core.RateWindow;
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
+import com.github.experiencebarfix.core.XpCurve;
 import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.entity.Entity;
-import net.minecraftforge.event.entity.EntityTeleportEvent;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * 把游戏事件接入 {@link FixScheduler}，并在游戏中执行修复
+ * <p>
+ * 合并、调度和统计都在核心模块中完成，这里只负责取得玩家、发送数据包和输出日志。
+ */
 @Mod.EventBusSubscriber(modid = ExperienceBarFixMod.MODID)
 public class ExperienceBarFixer {
     
-    // 玩家修复跟踪
-    private static final Set<UUID> pendingFix = ConcurrentHashMap.newKeySet();
+    // 统计信息，由调度器更新，监控端点和统计日志读取
+    private static final FixStatistics stats = new FixStatistics();
+    
+    // 修复的接收、合并和按游戏刻调度
+    private static final FixScheduler scheduler = new FixScheduler(new GameFixExecutor(), stats, 64);
+    
+    // 玩家状态表，只读访问
+    private static final PlayerStateTable players = scheduler.players();
+    
+    // 当前运行的服务器实例
+    private static MinecraftServer currentServer;
+    
+    // 异步事件日志，未启用时为 null；由 FixJournalWriter 设置
+    private static volatile FixJournal journal;
+    
+    // 供管理命令读取的状态快照，每 SNAPSHOT_INTERVAL_TICKS 刻在主线程上整体替换
+    private static volatile FixSnapshot snapshot = FixSnapshot.EMPTY;
+    private static final int SNAPSHOT_INTERVAL_TICKS = 20;
+    
+    // 突增告警：最近 1 分钟至少 SPIKE_MIN_COUNT 次，且超过之前 14 分钟每分钟平均值的 SPIKE_FACTOR 倍；
+    // 之前的数据不足 SPIKE_BASELINE_SECONDS 秒时不判断，同一类告警每分钟最多一次
+    private static final long SPIKE_MIN_COUNT = 20;
+    private static final double SPIKE_FACTOR = 3.0;
+    private static final int SPIKE_BASELINE_SECONDS = 240;
+    private static final long SPIKE_WARNING_INTERVAL_NANOS = 60_000_000_000L;
+    private static long lastFailureSpikeNanos;
+    private static long lastTriggerSpikeNanos;
     
-    // 统计信息
-    private static final AtomicInteger totalFixAttempts = new AtomicInteger(0);
-    private static final AtomicInteger successfulFixes = new AtomicInteger(0);
-    private static final AtomicInteger failedFixes = new AtomicInteger(0);
-    private static final AtomicInteger teleportCommandFixes = new AtomicInteger(0);
-    private static final AtomicInteger dimensionChangeFixes = new AtomicInteger(0);
-    private static final AtomicInteger respawnFixes = new AtomicInteger(0);
-    private static final AtomicInteger entityTeleportFixes = new AtomicInteger(0);
-    private static final AtomicInteger primaryMethodSuccess = new AtomicInteger(0);
-    private static final AtomicInteger fallbackMethodSuccess = new AtomicInteger(0);
+    // 客户端已确认传送的玩家，由连接的事件循环线程放入，主线程在刻结束时取出
+    private static final Queue<UUID> teleportAcks = new ConcurrentLinkedQueue<>();
     
-    // 性能监控
-    private static final AtomicLong totalFixDuration = new AtomicLong(0);
-    private static final AtomicLong longestFixDuration = new AtomicLong(0);
-    private static final AtomicLong shortestFixDuration = new AtomicLong(Long.MAX_VALUE);
+    // 本刻安排了修复、到刻结束时开始等待传送确认的连接，只在主线程上使用
+    private static final List<ExperiencePacketObserver> ackArms = new ArrayList<>();
     
-    // 玩家会话跟踪
-    private static final Map<UUID, PlayerSession> playerSessions = new ConcurrentHashMap<>();
+    // 已确认传送、但所在区块尚未发送的玩家，只在主线程上使用
+    private static final List<UUID> awaitingChunk = new ArrayList<>();
     
-    // 错误跟踪
-    private static final Map<String, AtomicInteger> errorCounts = new ConcurrentHashMap<>();
+    // 会切换玩家所在世界的来源，确认传送后还要等待区块发送
+    private static final int LEVEL_CHANGE_SOURCES = TriggerSource.DIMENSION_CHANGE.bit() | TriggerSource.RESPAWN.bit();
+    
+    // 在传送执行之前触发的来源，刻结束时确认玩家确实移动后才安排修复
+    private static final int TELEPORT_SOURCES = TriggerSource.TELEPORT_COMMAND.bit() | TriggerSource.ENTITY_TELEPORT.bit();
+    
+    // 等待刻结束时检查是否落地的传送，只在主线程上使用
+    private static final TeleportCommitCheck pendingTeleports = new TeleportCommitCheck();
+    
+    // 本批次的配置快照，由服务器刻事件设置
+    private static ConfigSnapshot batchConfig = ConfigSnapshot.defaults();
     
     // 时间格式化器
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
@@ -71,323 +118,505 @@ public class ExperienceBarFixer {
     private static LocalDateTime serverStartTime;
     
     /**
-     * 玩家会话信息类
+     * 接收由 {@link FixTriggerRouter} 归类并经触发策略判断后的修复请求
+     * <p>
+     * 每个事件只会到达这里一次，来源计数因此可以直接用于容量规划；被策略跳过的触发也计入来源。
+     * 启用传送落地检查时，传送指令和实体传送先记录出发点，到刻结束时确认玩家确实移动后才安排修复。
      */
-    private static class PlayerSession {
-        final String playerName;
-        final LocalDateTime joinTime;
-        int fixesApplied = 0;
-        LocalDateTime lastFixTime;
+    public static void requestFix(ConfigSnapshot config, ServerPlayer player, TriggerSource source, TriggerPolicy.Rule rule) {
+        long receivedNanos = System.nanoTime();
+        logEventReceived(config, source, player);
+        stats.recordPolicy(rule.action());
+        
+        if (rule.action() == TriggerPolicy.SKIP) {
+            stats.recordTrigger(source);
+            if (FixLog.isDebugEnabled(config)) {
+                FixLog.debug("🚫 按触发策略跳过修复: 玩家={}, 来源={}, 规则={}", 
+                    player.getGameProfile().getName(), source.id(), rule.text());
+            }
+            return;
+        }
         
-        PlayerSession(String playerName) {
-            this.playerName = playerName;
-            this.joinTime = LocalDateTime.now();
+        MinecraftServer server = player.getServer();
+        if (server == null) {
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 无法获取服务器实例，玩家: {}", player.getGameProfile().getName());
+            stats.recordTrigger(source);
+            stats.recordFailure("无服务器实例");
+            return;
+        }
+        
+        // 传送事件可能早于位置数据包发送，到刻结束时本刻的位置数据包都已排入连接，再开始等待确认
+        int laterTicks = laterTicks(rule);
+        ExperiencePacketObserver observer = observer(player);
+        if (awaitsAck(config, observer, laterTicks)) {
+            ackArms.add(observer);
         }
+        
+        if (config.teleportCommitCheck && (source.bit() & TELEPORT_SOURCES) != 0) {
+            pendingTeleports.add(player, source, rule, receivedNanos, server.getTickCount());
+            return;
+        }
+        handleTeleport(config, player, source, receivedNanos, laterTicks, server.getTickCount());
     }
     
     /**
-     * 处理传送指令 (/tp, /teleport 等)
+     * 刻结束时确认一次传送的结果：玩家确实移动了才安排修复，否则只计入来源
      */
-    @SubscribeEvent
-    public static void onTeleportCommand(EntityTeleportEvent.TeleportCommand event) {
-        if (Config.ENABLED.get()) {
-            logEventReceived("传送指令", event.getEntity());
-            handleTeleport(event.getEntity(), "teleport command");
-            teleportCommandFixes.incrementAndGet();
+    private static void commitTeleport(ServerPlayer player, TriggerSource source, TriggerPolicy.Rule rule, 
+                                       long receivedNanos, int tick, boolean moved) {
+        if (moved) {
+            handleTeleport(batchConfig, player, source, receivedNanos, laterTicks(rule), tick);
+            return;
+        }
+        
+        stats.recordTrigger(source);
+        stats.recordUncommittedTeleport();
+        if (FixLog.isDebugEnabled(batchConfig)) {
+            FixLog.debug("🪧 传送没有改变玩家的位置或世界，不安排修复: 玩家={}, 来源={}", 
+                player.getGameProfile().getName(), source.id());
         }
     }
     
     /**
-     * 处理维度变化 (下界、末地等)
+     * 记录一个已被其他模组取消的传送事件，由 {@link FixTriggerRouter} 调用
      */
-    @SubscribeEvent
-    public static void onPlayerChangeDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
-        if (Config.ENABLED.get() && Config.FIX_DIMENSION_CHANGE.get()) {
-            logEventReceived("维度变化", event.getEntity());
-            handleTeleport(event.getEntity(), "dimension change");
-            dimensionChangeFixes.incrementAndGet();
-        }
+    static void recordCancelledTeleport() {
+        stats.recordCancelledTeleport();
     }
     
     /**
-     * 处理玩家重生
+     * 触发策略要求延后的游戏刻数，0 为按常规延迟
      */
-    @SubscribeEvent
-    public static void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
-        if (Config.ENABLED.get() && Config.FIX_RESPAWN.get()) {
-            logEventReceived("玩家重生", event.getEntity());
-            handleTeleport(event.getEntity(), "respawn");
-            respawnFixes.incrementAndGet();
-        }
+    private static int laterTicks(TriggerPolicy.Rule rule) {
+        return rule.action() == TriggerPolicy.LATER ? rule.delayTicks() : 0;
+    }
+    
+    private static ExperiencePacketObserver observer(ServerPlayer player) {
+        int slot = players.find(player.getUUID());
+        return slot >= 0 && players.attachment(slot) instanceof ExperiencePacketObserver o ? o : null;
     }
     
     /**
-     * 处理任何可能影响玩家的实体传送
+     * 是否以传送确认为准安排修复；没有观察器或触发策略要求延后时不等待确认
      */
-    @SubscribeEvent
-    public static void onEntityTeleport(EntityTeleportEvent event) {
-        if (Config.ENABLED.get() && event.getEntity() instanceof ServerPlayer) {
-            logEventReceived("实体传送", event.getEntity());
-            handleTeleport(event.getEntity(), "entity teleport");
-            entityTeleportFixes.incrementAndGet();
-        }
+    private static boolean awaitsAck(ConfigSnapshot config, ExperiencePacketObserver observer, int laterTicks) {
+        return laterTicks == 0 && config.readinessTrigger && observer != null;
     }
     
     /**
      * 记录事件接收信息
      */
-    private static void logEventReceived(String eventType, Entity entity) {
-        if (entity instanceof ServerPlayer player) {
-            if (Config.DEBUG_LOGGING.get()) {
-                ExperienceBarFixMod.LOGGER.debug("📩 接收到{}事件: 玩家={}, 时间={}", 
-                    eventType, player.getName().getString(), LocalDateTime.now().format(TIME_FORMAT));
-            }
-            
-            ExperienceBarFixMod.logPlayerTracking("事件接收", player.getName().getString(), 
-                String.format("事件类型: %s", eventType));
+    private static void logEventReceived(ConfigSnapshot config, TriggerSource source, ServerPlayer player) {
+        if (FixLog.isDebugEnabled(config)) {
+            FixLog.debug("📩 接收到{}事件: 玩家={}, 时间={}", 
+                source.displayName(), player.getGameProfile().getName(), LocalDateTime.now().format(TIME_FORMAT));
         }
+        
+        FixLog.tracking("👤 玩家跟踪 [事件接收]: {} - 事件类型: {}", 
+            player.getGameProfile().getName(), source.displayName());
     }
     
     /**
      * 核心传送处理方法
+     *
+     * @param laterTicks 触发策略要求延后的游戏刻数，0 为按常规延迟
+     * @param tick 收到触发时的游戏刻，延迟从这一刻算起
      */
-    private static void handleTeleport(Entity entity, String source) {
-        if (!(entity instanceof ServerPlayer player)) {
-            if (Config.DEBUG_LOGGING.get()) {
-                ExperienceBarFixMod.LOGGER.debug("🚫 忽略非玩家实体的传送事件: {}", entity.getClass().getSimpleName());
+    private static void handleTeleport(ConfigSnapshot config, ServerPlayer player, TriggerSource source, 
+                                       long receivedNanos, int laterTicks, int tick) {
+        String playerName = player.getGameProfile().getName();
+        
+        // 传送确认模式下以超时为上限安排修复，收到确认后提前执行；没有观察器时退回固定延迟；
+        // 触发策略要求延后时按规则中的刻数执行，不因传送确认提前
+        boolean awaitAck = awaitsAck(config, observer(player), laterTicks);
+        int delay = laterTicks > 0 ? laterTicks : awaitAck ? config.readinessTimeout : config.fixDelay;
+        
+        // 在第 delay 个游戏刻结束时执行，期间不占用主线程任务队列；启用防抖时连续的触发会推迟执行刻
+        int outcome = scheduler.requestFix(player.getUUID(), playerName, source, 
+            tick, delay, config.debounceTicks, config.debounceMaxTicks, receivedNanos);
+        
+        if (outcome == FixScheduler.MERGED) {
+            if (FixLog.isDebugEnabled(config)) {
+                int merged = players.find(player.getUUID());
+                long due = players.dueTick(merged);
+                FixLog.debug("⏸️ 已合并到等待中的修复: 玩家={}, 来源={}, 剩余={}", 
+                    playerName, TriggerSource.describe(players.pendingSources(merged)), 
+                    due == FixScheduler.QUEUED ? "等待本刻预算" : (due - tick) + "刻");
+            }
+            FixLog.tracking("👤 玩家跟踪 [触发合并]: {} - 来源: {}", playerName, source.id());
+        } else {
+            if (FixLog.isDebugEnabled(config)) {
+                FixLog.debug(awaitAck 
+                        ? "📝 安排经验条修复: 玩家={}, 来源={}, 等待传送确认, 最长={}刻, 时间={}" 
+                        : "📝 安排经验条修复: 玩家={}, 来源={}, 延迟={}刻, 时间={}", 
+                    playerName, source.id(), delay, LocalDateTime.now().format(TIME_FORMAT));
             }
+            FixLog.tracking("👤 玩家跟踪 [修复安排]: {} - 来源: {}, 延迟: {}刻", playerName, source.id(), delay);
+        }
+        
+        emitTriggerEvent(player, source, outcome == FixScheduler.MERGED);
+    }
+    
+    /**
+     * 产生触发事件的 JFR 记录
+     */
+    private static void emitTriggerEvent(ServerPlayer player, TriggerSource source, boolean merged) {
+        if (!FixFlightEvents.isTriggerEnabled()) {
+            return;
+        }
+        FixFlightEvents.TriggerReceived event = new FixFlightEvents.TriggerReceived();
+        if (event.shouldCommit()) {
+            event.set(source, player.getUUID(), player.level().dimension().location().toString(), merged);
+            event.commit();
+        }
+    }
+    
+    /**
+     * 服务器刻结束时推进调度器，并输出本刻批量修复的结果
+     */
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || currentServer == null) {
             return;
         }
         
-        UUID playerId = player.getUUID();
-        String playerName = player.getName().getString();
+        // 批次级别的配置快照
+        batchConfig = Config.snapshot();
+        int tick = currentServer.getTickCount();
+        long now = System.nanoTime();
+        if (stats.roll(now)) {
+            checkSpikes(stats.recent(), now);
+        }
+        // 先确认本刻的传送是否落地，再处理传送确认，确认可能早于刻结束到达
+        pendingTeleports.drain(currentServer, ExperienceBarFixer::commitTeleport);
+        armTeleportAcks();
+        processTeleportAcks(tick);
+        BatchSummary batch = scheduler.advance(tick, batchConfig.tickBudgetFixes, batchConfig.tickBudgetNanos);
+        if (batch.count() > 0) {
+            logBatch(batchConfig, batch);
+        }
         
-        // 性能监控开始
-        long startTime = System.nanoTime();
+        if (tick % SNAPSHOT_INTERVAL_TICKS == 0) {
+            publishSnapshot(tick);
+        }
+    }
+    
+    /**
+     * 本刻安排了修复的连接开始等待客户端确认最近一次传送
+     */
+    private static void armTeleportAcks() {
+        for (int i = 0; i < ackArms.size(); i++) {
+            ackArms.get(i).awaitTeleportAck();
+        }
+        ackArms.clear();
+    }
+    
+    /**
+     * 把已确认传送的玩家的修复提前到本刻执行
+     * <p>
+     * 维度变化和重生还要求玩家已在新的世界中且所在区块已经发送（区块进入 ticking 状态时原版即发送给范围内的玩家），
+     * 未满足时留到之后的刻再检查；超时的修复照常由时间轮执行。
+     */
+    private static void processTeleportAcks(int tick) {
+        UUID acknowledged;
+        while ((acknowledged = teleportAcks.poll()) != null) {
+            if (!awaitingChunk.contains(acknowledged)) {
+                awaitingChunk.add(acknowledged);
+            }
+        }
+        if (awaitingChunk.isEmpty()) {
+            return;
+        }
         
-        // 防止对同一玩家进行重复修复
-        if (pendingFix.contains(playerId)) {
-            if (Config.DEBUG_LOGGING.get()) {
-                ExperienceBarFixMod.LOGGER.debug("⏸️ 经验条修复已在等待队列中: 玩家={}, 来源={}", 
-                    playerName, source);
+        for (int i = awaitingChunk.size() - 1; i >= 0; i--) {
+            UUID playerId = awaitingChunk.get(i);
+            int slot = players.find(playerId);
+            if (slot < 0 || !players.isPending(slot)) {
+                awaitingChunk.remove(i);
+                continue;
+            }
+            if ((players.pendingSources(slot) & LEVEL_CHANGE_SOURCES) != 0 && !isChunkSent(playerId)) {
+                continue;
             }
             
-            ExperienceBarFixMod.logPlayerTracking("重复修复阻止", playerName, 
-                String.format("来源: %s", source));
-            return;
+            awaitingChunk.remove(i);
+            if (scheduler.expedite(playerId, tick) && FixLog.isDebugEnabled()) {
+                FixLog.debug("📬 客户端已确认传送，提前执行修复: 玩家={}, 等待={}刻", 
+                    players.name(slot), tick - players.triggerTick(slot));
+            }
+        }
+    }
+    
+    /**
+     * 玩家所在区块是否已经发送给客户端
+     */
+    private static boolean isChunkSent(UUID playerId) {
+        ServerPlayer player = currentServer.getPlayerList().getPlayer(playerId);
+        return player != null && player.serverLevel().getChunkSource().isPositionTicking(player.chunkPosition().toLong());
+    }
+    
+    /**
+     * 最近 1 分钟的失败或触发明显高于之前的水平时输出警告，例如插件更新后
+     */
+    private static void checkSpikes(RateWindow.Snapshot rates, long now) {
+        if (isSpike(rates.count(RateWindow.WINDOW_1M, FixStatistics.RATE_FAILURES), 
+                rates.count(RateWindow.WINDOW_15M, FixStatistics.RATE_FAILURES), rates)
+                && now - lastFailureSpikeNanos >= SPIKE_WARNING_INTERVAL_NANOS) {
+            lastFailureSpikeNanos = now;
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 修复失败突增: 最近 1 分钟 {} 次, 最近 15 分钟平均每分钟 {} 次", 
+                rates.count(RateWindow.WINDOW_1M, FixStatistics.RATE_FAILURES), 
+                FixLog.rate(rates.perMinute(RateWindow.WINDOW_15M, FixStatistics.RATE_FAILURES)));
+        }
+        
+        long recentTriggers = FixStatistics.recentTriggers(rates, RateWindow.WINDOW_1M);
+        if (isSpike(recentTriggers, FixStatistics.recentTriggers(rates, RateWindow.WINDOW_15M), rates)
+                && now - lastTriggerSpikeNanos >= SPIKE_WARNING_INTERVAL_NANOS) {
+            lastTriggerSpikeNanos = now;
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 修复触发突增: 最近 1 分钟 {} 次, 最近 15 分钟共 {} 次", 
+                recentTriggers, FixStatistics.recentTriggers(rates, RateWindow.WINDOW_15M));
+        }
+    }
+    
+    /**
+     * 与 15 分钟窗口中除最近 1 分钟外的部分比较
+     */
+    private static boolean isSpike(long lastMinute, long fifteenMinutes, RateWindow.Snapshot rates) {
+        int baselineSeconds = rates.seconds(RateWindow.WINDOW_15M) - rates.seconds(RateWindow.WINDOW_1M);
+        if (lastMinute < SPIKE_MIN_COUNT || baselineSeconds < SPIKE_BASELINE_SECONDS) {
+            return false;
+        }
+        double baselinePerMinute = (fifteenMinutes - lastMinute) * 60.0 / baselineSeconds;
+        double lastMinuteRate = lastMinute * 60.0 / rates.seconds(RateWindow.WINDOW_1M);
+        return lastMinuteRate > baselinePerMinute * SPIKE_FACTOR;
+    }
+    
+    /**
+     * 在主线程上复制当前状态并发布给管理命令
+     */
+    private static void publishSnapshot(long tick) {
+        snapshot = FixSnapshot.capture(scheduler, tick, System.currentTimeMillis());
+    }
+    
+    /**
+     * 最近发布的状态快照，可从任意线程读取
+     */
+    static FixSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * 开始新的统计会话并立即发布快照，必须在服务器主线程上调用
+     */
+    static void resetStatistics() {
+        stats.reset();
+        if (currentServer != null) {
+            publishSnapshot(currentServer.getTickCount());
+        }
+    }
+    
+    /**
+     * 输出一个批次的结果
+     */
+    private static void logBatch(ConfigSnapshot config, BatchSummary batch) {
+        FixLog.performance("批量修复", batch.durationNanos());
+        if (batch.deferred() > 0) {
+            FixLog.performanceValue("⏳ 本刻预算已用完: {} 个修复留到之后的游戏刻", batch.deferred());
         }
         
-        pendingFix.add(playerId);
-        totalFixAttempts.incrementAndGet();
+        if (FixLog.isPerformanceEnabled(config)) {
+            FixLog.performance("⏱️ 修复性能: 本刻 {} 个修复, 平均耗时 {}ms", 
+                batch.count(), batch.totalLatencyNanos() / batch.count());
+        }
         
-        // 更新玩家会话信息
-        updatePlayerSession(playerId, playerName);
+        if (batch.failed() > 0) {
+            FixLog.warn("❌ 批量修复存在失败: 本刻 {} 个修复, 成功 {}, 失败 {}", 
+                batch.count(), batch.succeeded(), batch.failed());
+        } else if (journal == null) {
+            // 启用事件日志时每个修复都已记录，不再在主线程上同步输出
+            FixLog.info("✅ 经验条修复成功: 本刻 {} 个修复 (数据包 {}, 备用 {}, 已是最新 {})", 
+                batch.succeeded(), batch.primary(), batch.fallback(), batch.suppressed());
+        }
+    }
+    
+    /**
+     * 在游戏中执行修复：通过 UUID 取得在线玩家，发送经验数据包，同一玩家的数据包合并为一次发送
+     */
+    private static final class GameFixExecutor implements FixExecutor {
         
-        if (Config.DEBUG_LOGGING.get()) {
-            ExperienceBarFixMod.LOGGER.debug("📝 安排经验条修复: 玩家={}, 来源={}, 延迟={}刻, 时间={}", 
-                playerName, source, Config.FIX_DELAY.get(), LocalDateTime.now().format(TIME_FORMAT));
+        @Override
+        public long packetBaseline(Object attachment) {
+            return attachment instanceof ExperiencePacketObserver observer ? observer.markTrigger() : 0L;
         }
         
-        ExperienceBarFixMod.logPlayerTracking("修复安排", playerName, 
-            String.format("来源: %s, 延迟: %d刻", source, Config.FIX_DELAY.get()));
+        @Override
+        public int execute(UUID playerId, int sources, Object attachment, long packetBaseline, FixTrace trace) {
+            // 只在执行时通过 UUID 取得在线玩家
+            ServerPlayer player = currentServer == null ? null : currentServer.getPlayerList().getPlayer(playerId);
+            ExperiencePacketObserver observer = attachment instanceof ExperiencePacketObserver o ? o : null;
+            // 经验值只在来源需要且客户端尚未收到最新值时发送，HUD 重新同步模块各自按来源决定
+            boolean experience = (sources & batchConfig.experienceSources) != 0
+                && !isClientUpToDate(player, observer, packetBaseline);
+            return applyFix(player, playerId, sources, experience, batchConfig, trace);
+        }
         
-        MinecraftServer server = player.getServer();
-        if (server != null) {
-            // 使用可配置的延迟来安排修复
-            scheduleFixWithDelay(server, player, playerId, Config.FIX_DELAY.get(), source, startTime);
-        } else {
-            ExperienceBarFixMod.LOGGER.warn("⚠️ 无法获取服务器实例，玩家: {}", playerName);
-            pendingFix.remove(playerId);
-            failedFixes.incrementAndGet();
-            incrementErrorCount("无服务器实例");
+        @Override
+        public void finishBatch() {
+            // 修复中途出错时可能留下尚未发送的数据包，不能混入下一批次
+            FixPacketSender.discard();
         }
     }
     
     /**
-     * 按指定延迟安排经验条修复
+     * 客户端是否已经收到在触发之后发送、与当前经验值相同的数据包
+     * <p>
+     * 原版在切换维度等情况下会自行重发经验值，此时无需再发送一次。
      */
-    private static void scheduleFixWithDelay(MinecraftServer server, ServerPlayer player, UUID playerId, 
-                                           int delay, String source, long startTime) {
-        if (Config.DEBUG_LOGGING.get()) {
-            ExperienceBarFixMod.LOGGER.debug("⏳ 递归延迟调度: 玩家={}, 剩余延迟={}", 
-                player.getName().getString(), delay);
+    private static boolean isClientUpToDate(ServerPlayer player, ExperiencePacketObserver observer, long baseline) {
+        if (player == null || observer == null || player.hasDisconnected()) {
+            return false;
+        }
+        if (!observer.isUpToDate(baseline, player.experienceProgress, player.totalExperience, player.experienceLevel)) {
+            return false;
         }
         
-        // 首次延迟以确保传送完成
-        server.execute(() -> {
-            if (delay <= 1) {
-                performFix(player, playerId, source, startTime);
-            } else {
-                // 如果配置了额外延迟
-                scheduleFixWithDelay(server, player, playerId, delay - 1, source, startTime);
-            }
-        });
+        FixLog.debug("⏭️ 客户端经验值已是最新，跳过重新同步: 玩家={}", player.getGameProfile().getName());
+        FixLog.tracking("👤 玩家跟踪 [修复跳过]: {} - 客户端已收到最新经验值", player.getGameProfile().getName());
+        return true;
     }
     
     /**
-     * 执行实际的经验条修复
+     * 对单个玩家执行经验条修复和匹配来源的 HUD 重新同步
+     *
+     * @param experience 是否需要发送经验值
+     * @return 修复结果，见 {@link FixResult}；没有任何数据包需要发送时为 {@link FixResult#SUPPRESSED}
      */
-    private static void performFix(ServerPlayer player, UUID playerId, String source, long startTime) {
-        String playerName = player.getName().getString();
+    private static int applyFix(ServerPlayer player, UUID playerId, int sources, boolean experience, 
+                                ConfigSnapshot config, FixTrace trace) {
+        boolean debug = FixLog.isDebugEnabled(config);
         
         try {
-            if (Config.DEBUG_LOGGING.get()) {
-                ExperienceBarFixMod.LOGGER.debug("🔧 开始执行经验条修复: 玩家={}, 来源={}, 时间={}", 
-                    playerName, source, LocalDateTime.now().format(TIME_FORMAT));
-            }
-            
             // 检查玩家是否仍在线且有效
             if (player == null || player.hasDisconnected()) {
-                if (Config.DEBUG_LOGGING.get()) {
-                    ExperienceBarFixMod.LOGGER.debug("❌ 玩家已离线或无效: {}", playerName);
+                if (debug) {
+                    FixLog.debug("❌ 玩家已离线或无效: 玩家ID={}, 来源={}", 
+                        playerId, TriggerSource.describe(sources));
                 }
-                pendingFix.remove(playerId);
-                failedFixes.incrementAndGet();
-                incrementErrorCount("玩家离线");
-                recordPerformance(startTime, false);
-                return;
+                stats.incrementError("玩家离线");
+                return FixResult.OFFLINE;
             }
             
-            boolean fixSuccessful = false;
-            
-            // 记录修复前的经验值状态
-            logExperienceState(player, "修复前");
+            String playerName = player.getGameProfile().getName();
+            if (debug) {
+                FixLog.debug("🔧 开始执行经验条修复: 玩家={}, 来源={}, 时间={}", 
+                    playerName, TriggerSource.describe(sources), 
+                    LocalDateTime.now().format(TIME_FORMAT));
+                logExperienceState(player, "修复前");
+            }
             
-            // 方法1: 重新发送经验数据包 (主要方法)
+            // 方法1: 重新发送经验数据包 (主要方法)，与 HUD 重新同步的数据包合并为一个数据包束后一次发送
             try {
-                long methodStartTime = System.nanoTime();
-                
-                player.connection.send(new ClientboundSetExperiencePacket(
-                    player.experienceProgress, 
-                    player.totalExperience, 
-                    player.experienceLevel
-                ));
-                fixSuccessful = true;
-                primaryMethodSuccess.incrementAndGet();
-                
-                long methodDuration = System.nanoTime() - methodStartTime;
-                ExperienceBarFixMod.logPerformance("数据包发送方法", methodDuration);
+                if (experience) {
+                    FixPacketSender.add(new ClientboundSetExperiencePacket(
+                        player.experienceProgress, 
+                        player.totalExperience, 
+                        player.experienceLevel
+                    ));
+                }
+                int hudPackets = HudResyncRegistry.stage(player, sources, config);
+                if (!experience && hudPackets == 0) {
+                    return FixResult.SUPPRESSED;
+                }
+                trace.markBuilt();
+                FixPacketSender.writeTo(player);
+                trace.markHanded();
                 
-                if (Config.DEBUG_LOGGING.get()) {
-                    ExperienceBarFixMod.LOGGER.debug("✅ 主要修复方法成功: 玩家={}, 方法=数据包发送", playerName);
+                if (hudPackets > 0) {
+                    FixLog.debug("🩺 HUD 重新同步: 玩家={}, 数据包={}", playerName, hudPackets);
                 }
                 
-                ExperienceBarFixMod.logPlayerTracking("修复成功", playerName, "方法: 数据包发送");
+                FixLog.debug("✅ 主要修复方法成功: 玩家={}, 方法=数据包发送", playerName);
+                FixLog.tracking("👤 玩家跟踪 [修复成功]: {} - 方法: 数据包发送", playerName);
+                return FixResult.PRIMARY;
                 
             } catch (Exception e) {
-                ExperienceBarFixMod.LOGGER.warn("⚠️ 主要修复方法失败: 玩家={}, 错误={}", playerName, e.getMessage());
-                incrementErrorCount("数据包发送失败");
+                FixPacketSender.discard();
+                ExperienceBarFixMod.LOGGER.warn("⚠️ 主要修复方法失败: 玩家={}, 错误={}", 
+                    playerName, e.getMessage());
+                stats.incrementError("数据包发送失败");
+                trace.fallback(e.getClass().getSimpleName() + ": " + e.getMessage());
                 
-                if (Config.ERROR_DETAILS_LOGGING.get()) {
+                if (config.errorDetailsLogging) {
                     ExperienceBarFixMod.logDetailedError("数据包发送方法", e);
                 }
             }
             
-            // 方法2: 备用方法 - 临时经验值操作
-            if (!fixSuccessful && Config.FALLBACK_METHOD.get()) {
-                if (Config.DEBUG_LOGGING.get()) {
-                    ExperienceBarFixMod.LOGGER.debug("🔄 尝试备用修复方法: 玩家={}", playerName);
-                }
-                
-                try {
-                    long methodStartTime = System.nanoTime();
-                    
-                    if (player.totalExperience > 0) {
-                        int backupTotal = player.totalExperience;
-                        int backupLevel = player.experienceLevel;
-                        float backupProgress = player.experienceProgress;
-                        
-                        if (Config.DEBUG_LOGGING.get()) {
-                            ExperienceBarFixMod.LOGGER.debug("💾 备份经验数据: 总经验={}, 等级={}, 进度={:.3f}", 
-                                backupTotal, backupLevel, backupProgress);
-                        }
-                        
-                        // 临时重置并恢复经验值
-                        player.totalExperience = 0;
-                        player.experienceLevel = 0;
-                        player.experienceProgress = 0.0f;
-                        player.giveExperiencePoints(backupTotal);
-                        
-                        // 确保进度正确恢复
-                        if (player.experienceLevel == backupLevel) {
-                            player.experienceProgress = backupProgress;
-                        }
-                        
-                        if (Config.DEBUG_LOGGING.get()) {
-                            ExperienceBarFixMod.LOGGER.debug("🔄 经验数据已恢复: 总经验={}, 等级={}, 进度={:.3f}", 
-                                player.totalExperience, player.experienceLevel, player.experienceProgress);
-                        }
-                        
-                        fixSuccessful = true;
-                        fallbackMethodSuccess.incrementAndGet();
-                        
-                        long methodDuration = System.nanoTime() - methodStartTime;
-                        ExperienceBarFixMod.logPerformance("经验重置方法", methodDuration);
-                        
-                        if (Config.DEBUG_LOGGING.get()) {
-                            ExperienceBarFixMod.LOGGER.debug("✅ 备用修复方法成功: 玩家={}, 方法=经验重置", playerName);
-                        }
-                        
-                        ExperienceBarFixMod.logPlayerTracking("修复成功", playerName, "方法: 经验重置");
-                        
-                    } else {
-                        // 对于经验值为0的玩家，只需触发刷新
-                        player.giveExperiencePoints(0);
-                        fixSuccessful = true;
-                        fallbackMethodSuccess.incrementAndGet();
-                        
-                        if (Config.DEBUG_LOGGING.get()) {
-                            ExperienceBarFixMod.LOGGER.debug("✅ 零经验玩家修复成功: 玩家={}", playerName);
-                        }
-                        
-                        ExperienceBarFixMod.logPlayerTracking("修复成功", playerName, "方法: 零经验刷新");
-                    }
-                } catch (Exception e) {
-                    ExperienceBarFixMod.LOGGER.error("❌ 备用修复方法失败: 玩家={}, 错误={}", playerName, e.getMessage());
-                    incrementErrorCount("经验重置失败");
-                    
-                    if (Config.ERROR_DETAILS_LOGGING.get()) {
-                        ExperienceBarFixMod.logDetailedError("备用修复方法", e);
-                    }
-                }
+            // 方法2: 备用方法 - 按经验曲线直接发送
+            if (experience && config.fallbackMethod && applyFallback(player, config, trace)) {
+                return FixResult.FALLBACK;
             }
             
-            // 记录修复后的经验值状态
-            if (fixSuccessful) {
-                logExperienceState(player, "修复后");
-            }
-            
-            // 更新统计信息
-            if (fixSuccessful) {
-                successfulFixes.incrementAndGet();
-                updatePlayerSessionFix(playerId);
-                recordPerformance(startTime, true);
-                
-                ExperienceBarFixMod.LOGGER.info("✅ 经验条修复成功: 玩家={}, 来源={}", playerName, source);
-            } else {
-                failedFixes.incrementAndGet();
-                recordPerformance(startTime, false);
-                incrementErrorCount("所有方法失败");
-                
-                ExperienceBarFixMod.LOGGER.warn("❌ 所有修复方法均失败: 玩家={}, 来源={}", playerName, source);
-                ExperienceBarFixMod.logPlayerTracking("修复失败", playerName, "所有方法均失败");
-            }
+            stats.incrementError("所有方法失败");
+            ExperienceBarFixMod.LOGGER.warn("❌ 所有修复方法均失败: 玩家={}, 来源={}", 
+                playerName, TriggerSource.describe(sources));
+            FixLog.tracking("👤 玩家跟踪 [修复失败]: {} - 所有方法均失败", playerName);
+            return FixResult.FAILED;
             
         } catch (Exception e) {
-            failedFixes.incrementAndGet();
-            recordPerformance(startTime, false);
-            incrementErrorCount("意外错误");
+            stats.incrementError("意外错误");
             
-            ExperienceBarFixMod.LOGGER.error("💥 修复经验条时发生意外错误: 玩家={}, 来源={}", playerName, source);
+            ExperienceBarFixMod.LOGGER.error("💥 修复经验条时发生意外错误: 玩家ID={}, 来源={}", 
+                playerId, TriggerSource.describe(sources));
             ExperienceBarFixMod.logDetailedError("经验条修复", e);
+            return FixResult.FAILED;
+        }
+    }
+    
+    /**
+     * 备用修复方法 - 按经验曲线重新计算并直接发送
+     * <p>
+     * 由总经验值查表得到精确的等级和进度，一次发送，不通过经验 API 修改玩家状态，
+     * 因此不会触发其他模组的经验事件或进度触发器。
+     */
+    private static boolean applyFallback(ServerPlayer player, ConfigSnapshot config, FixTrace trace) {
+        String playerName = player.getGameProfile().getName();
+        FixLog.debug("🔄 尝试备用修复方法: 玩家={}", playerName);
+        
+        try {
+            long methodStartTime = System.nanoTime();
+            
+            int total = player.totalExperience;
+            int level = player.experienceLevel;
+            float progress = player.experienceProgress;
+            
+            if (XpCurve.levelForTotal(total) == level) {
+                progress = XpCurve.progressForTotal(total);
+            } else if (FixLog.isDebugEnabled(config)) {
+                // 指令或附魔可能只修改等级而不修改总经验值，此时以服务器当前的等级和进度为准
+                FixLog.debug("ℹ 总经验值与等级不一致，保留当前等级: 玩家={}, 总经验={}, 等级={}", 
+                    playerName, total, level);
+            }
+            
+            // 主要方法的合并发送路径已失败，这里直接使用连接的发送方法
+            ClientboundSetExperiencePacket packet = new ClientboundSetExperiencePacket(progress, total, level);
+            trace.markBuilt();
+            player.connection.send(packet);
+            trace.markHanded();
             
-        } finally {
-            // 始终从待处理集合中移除
-            pendingFix.remove(playerId);
+            long methodDuration = System.nanoTime() - methodStartTime;
+            FixLog.performance("经验曲线方法", methodDuration);
             
-            if (Config.DEBUG_LOGGING.get()) {
-                ExperienceBarFixMod.LOGGER.debug("🧹 清理完成: 玩家={} 已从待处理队列移除", playerName);
+            FixLog.debug("✅ 备用修复方法成功: 玩家={}, 方法=经验曲线", playerName);
+            FixLog.tracking("👤 玩家跟踪 [修复成功]: {} - 方法: 经验曲线", playerName);
+            return true;
+            
+        } catch (Exception e) {
+            ExperienceBarFixMod.LOGGER.error("❌ 备用修复方法失败: 玩家={}, 错误={}", playerName, e.getMessage());
+            stats.incrementError("经验曲线方法失败");
+            
+            if (config.errorDetailsLogging) {
+                ExperienceBarFixMod.logDetailedError("备用修复方法", e);
             }
+            return false;
         }
     }
     
@@ -397,23 +626,25 @@ public class ExperienceBarFixer {
     @SubscribeEvent
     public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
         UUID playerId = event.getEntity().getUUID();
-        String playerName = event.getEntity().getName().getString();
+        String playerName = event.getEntity().getGameProfile().getName();
         
-        // 从待处理修复中移除
-        boolean wasPending = pendingFix.remove(playerId);
+        int slot = players.find(playerId);
+        if (slot < 0) {
+            FixLog.debug("🚪 玩家登出清理: 玩家={}, 待处理修复={}, 会话清理={}", playerName, "否", "否");
+            FixLog.tracking("👤 玩家跟踪 [玩家登出]: {} - 会话时长: 未知, 修复次数: 0", playerName);
+            return;
+        }
         
-        // 清理玩家会话
-        PlayerSession session = playerSessions.remove(playerId);
+        long sessionMinutes = getSessionMinutes(slot);
+        int fixCount = players.fixCount(slot);
         
-        if (Config.DEBUG_LOGGING.get()) {
-            ExperienceBarFixMod.LOGGER.debug("🚪 玩家登出清理: 玩家={}, 待处理修复={}, 会话清理={}", 
-                playerName, wasPending ? "是" : "否", session != null ? "是" : "否");
-        }
+        // 等待中的修复随会话一起移除，时间轮中的条目到期时会被丢弃
+        boolean wasPending = scheduler.playerLeft(playerId);
         
-        ExperienceBarFixMod.logPlayerTracking("玩家登出", playerName, 
-            String.format("会话时长: %s, 修复次数: %d", 
-                session != null ? getSessionDuration(session) : "未知", 
-                session != null ? session.fixesApplied : 0));
+        FixLog.debug("🚪 玩家登出清理: 玩家={}, 待处理修复={}, 会话清理={}", 
+            playerName, wasPending ? "是" : "否", "是");
+        FixLog.tracking("👤 玩家跟踪 [玩家登出]: {} - 会话时长: {}分钟, 修复次数: {}", 
+            playerName, sessionMinutes, fixCount);
     }
     
     /**
@@ -422,103 +653,118 @@ public class ExperienceBarFixer {
     @SubscribeEvent
     public static void onPlayerLogin(PlayerEvent.PlayerLoggedInEvent event) {
         UUID playerId = event.getEntity().getUUID();
-        String playerName = event.getEntity().getName().getString();
+        String playerName = event.getEntity().getGameProfile().getName();
+        
+        // 观察发往该玩家的经验数据包，用于跳过多余的重新同步
+        ExperiencePacketObserver observer = null;
+        if (event.getEntity() instanceof ServerPlayer player) {
+            try {
+                observer = ExperiencePacketObserver.attach(player, teleportAcks);
+            } catch (Exception e) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ 无法安装经验数据包观察器: 玩家={}, 错误={}", 
+                    playerName, e.getMessage());
+                stats.incrementError("观察器安装失败");
+            }
+        }
         
         // 创建新的玩家会话
-        playerSessions.put(playerId, new PlayerSession(playerName));
+        scheduler.playerJoined(playerId, playerName, System.currentTimeMillis(), observer);
         
-        if (Config.DEBUG_LOGGING.get()) {
-            ExperienceBarFixMod.LOGGER.debug("🔑 玩家登入: 玩家={}, 时间={}", 
-                playerName, LocalDateTime.now().format(TIME_FORMAT));
+        if (FixLog.isDebugEnabled()) {
+            FixLog.debug("🔑 玩家登入: 玩家={}, 时间={}", playerName, LocalDateTime.now().format(TIME_FORMAT));
         }
         
-        ExperienceBarFixMod.logPlayerTracking("玩家登入", playerName, "新会话已创建");
+        FixLog.tracking("👤 玩家跟踪 [玩家登入]: {} - 新会话已创建", playerName);
     }
     
     /**
      * 记录经验值状态
      */
     private static void logExperienceState(ServerPlayer player, String context) {
-        if (Config.DEBUG_LOGGING.get()) {
-            ExperienceBarFixMod.LOGGER.debug("📊 经验值状态 [{}]: 玩家={}, 总经验={}, 等级={}, 进度={:.3f}", 
-                context, player.getName().getString(), 
-                player.totalExperience, player.experienceLevel, player.experienceProgress);
-        }
+        FixLog.debugExperience("📊 经验值状态 [{}]: 玩家={}, 总经验={}, 等级={}, 进度={}", 
+            context, player.getGameProfile().getName(), 
+            player.totalExperience, player.experienceLevel, player.experienceProgress);
     }
     
     /**
-     * 更新玩家会话信息
+     * 输出一组延迟分布
      */
-    private static void updatePlayerSession(UUID playerId, String playerName) {
-        PlayerSession session = playerSessions.get(playerId);
-        if (session == null) {
-            session = new PlayerSession(playerName);
-            playerSessions.put(playerId, session);
+    private static void logLatency(String name, LatencyHistogram nanos, LatencyHistogram ticks) {
+        if (nanos.count() == 0) {
+            return;
         }
+        ExperienceBarFixMod.LOGGER.info("  {} ({} 次):", name, nanos.count());
+        ExperienceBarFixMod.LOGGER.info("    纳秒 p50={} p90={} p99={} p99.9={} max={}", 
+            nanos.percentile(50), nanos.percentile(90), nanos.percentile(99), 
+            nanos.percentile(99.9), nanos.max());
+        if (ticks == null) {
+            return;
+        }
+        ExperienceBarFixMod.LOGGER.info("    游戏刻 p50={} p90={} p99={} p99.9={} max={}", 
+            ticks.percentile(50), ticks.percentile(90), ticks.percentile(99), 
+            ticks.percentile(99.9), ticks.max());
     }
     
     /**
-     * 更新玩家会话修复计数
+     * 获取会话持续时间（分钟）
      */
-    private static void updatePlayerSessionFix(UUID playerId) {
-        PlayerSession session = playerSessions.get(playerId);
-        if (session != null) {
-            session.fixesApplied++;
-            session.lastFixTime = LocalDateTime.now();
-        }
+    private static long getSessionMinutes(int slot) {
+        return (System.currentTimeMillis() - players.joinMillis(slot)) / 60_000L;
     }
     
     /**
-     * 记录性能数据
+     * 服务器启动时调用
      */
-    private static void recordPerformance(long startTime, boolean successful) {
-        long duration = System.nanoTime() - startTime;
-        totalFixDuration.addAndGet(duration);
-        
-        // 更新最长和最短修复时间
-        long current = longestFixDuration.get();
-        while (duration > current && !longestFixDuration.compareAndSet(current, duration)) {
-            current = longestFixDuration.get();
-        }
-        
-        current = shortestFixDuration.get();
-        while (duration < current && !shortestFixDuration.compareAndSet(current, duration)) {
-            current = shortestFixDuration.get();
-        }
+    public static void onServerStarted(MinecraftServer server) {
+        currentServer = server;
+        serverStartTime = LocalDateTime.now();
+        ExperienceBarFixMod.LOGGER.info("🚀 经验条修复器已在服务器启动时激活");
+        ExperienceBarFixMod.LOGGER.info("服务器启动时间: {}", serverStartTime.format(TIME_FORMAT));
         
-        if (Config.PERFORMANCE_LOGGING.get()) {
-            double durationMs = duration / 1_000_000.0;
-            ExperienceBarFixMod.LOGGER.info("⏱️ 修复性能: 耗时 {:.2f}ms, 结果={}", 
-                durationMs, successful ? "成功" : "失败");
-        }
+        // 挂接世界目录下的计数器文件，挂接时同时重置本次会话的统计信息
+        openCounters(server.getWorldPath(LevelResource.ROOT).resolve(ExperienceBarFixMod.MODID).resolve("counters.dat"));
+        publishSnapshot(server.getTickCount());
+        ExperienceBarFixMod.LOGGER.info("📊 统计信息已重置");
     }
     
     /**
-     * 增加错误计数
+     * 打开计数器文件，失败时继续使用内存中的计数器，累计值不会跨重启保存
      */
-    private static void incrementErrorCount(String errorType) {
-        errorCounts.computeIfAbsent(errorType, k -> new AtomicInteger(0)).incrementAndGet();
+    private static void openCounters(Path path) {
+        try {
+            CounterFile file = CounterFile.open(path, FixStatistics.counterNames());
+            stats.attach(file);
+            if (file.notice() != null) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ {}", file.notice());
+            }
+            if (file.uncleanShutdown()) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ 计数器文件上次未正常关闭，累计值停在最后一次检查点附近");
+            }
+            ExperienceBarFixMod.LOGGER.info("📚 计数器文件: {} (第 {} 次启动, 累计修复 {} 次)", 
+                path, file.opens(), stats.lifetimeAttempts());
+        } catch (IOException | RuntimeException e) {
+            stats.attach(null);
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 无法打开计数器文件 {}，累计统计不会跨重启保存: {}", path, e.getMessage());
+        }
     }
     
     /**
-     * 获取会话持续时间
+     * 把计数器刷到磁盘，由统计线程定期调用
      */
-    private static String getSessionDuration(PlayerSession session) {
-        LocalDateTime now = LocalDateTime.now();
-        long minutes = java.time.Duration.between(session.joinTime, now).toMinutes();
-        return String.format("%d分钟", minutes);
+    static void checkpointCounters() {
+        stats.counterFile().checkpoint();
     }
     
     /**
-     * 服务器启动时调用
+     * 标记计数器文件为正常关闭，之后的计数只留在内存中
      */
-    public static void onServerStarted() {
-        serverStartTime = LocalDateTime.now();
-        ExperienceBarFixMod.LOGGER.info("🚀 经验条修复器已在服务器启动时激活");
-        ExperienceBarFixMod.LOGGER.info("服务器启动时间: {}", serverStartTime.format(TIME_FORMAT));
-        
-        // 重置统计信息
-        resetStatistics();
+    static void closeCounters() {
+        CounterFile file = stats.counterFile();
+        file.close();
+        if (file.path() != null) {
+            stats.attach(null);
+            ExperienceBarFixMod.LOGGER.info("✓ 计数器文件已关闭");
+        }
     }
     
     /**
@@ -527,95 +773,170 @@ public class ExperienceBarFixer {
     public static void onServerStopping() {
         ExperienceBarFixMod.LOGGER.info("🛑 经验条修复器正在清理资源...");
         
-        // 清理待处理的修复
-        int pendingCount = pendingFix.size();
-        pendingFix.clear();
-        
-        // 清理玩家会话
-        int sessionCount = playerSessions.size();
-        playerSessions.clear();
+        // 清理待处理的修复和玩家会话
+        int pendingCount = scheduler.pendingCount();
+        int sessionCount = players.size();
+        scheduler.clear();
+        teleportAcks.clear();
+        ackArms.clear();
+        awaitingChunk.clear();
+        pendingTeleports.clear();
+        currentServer = null;
+        snapshot = FixSnapshot.EMPTY;
         
         ExperienceBarFixMod.LOGGER.info("✓ 已清理 {} 个待处理修复和 {} 个玩家会话", pendingCount, sessionCount);
     }
     
-    /**
-     * 重置统计信息
-     */
-    private static void resetStatistics() {
-        totalFixAttempts.set(0);
-        successfulFixes.set(0);
-        failedFixes.set(0);
-        teleportCommandFixes.set(0);
-        dimensionChangeFixes.set(0);
-        respawnFixes.set(0);
-        entityTeleportFixes.set(0);
-        primaryMethodSuccess.set(0);
-        fallbackMethodSuccess.set(0);
-        totalFixDuration.set(0);
-        longestFixDuration.set(0);
-        shortestFixDuration.set(Long.MAX_VALUE);
-        errorCounts.clear();
-        
-        ExperienceBarFixMod.LOGGER.info("📊 统计信息已重置");
-    }
-    
     /**
      * 记录统计信息
      */
     public static void logStatistics() {
-        if (!Config.STATISTICS_LOGGING.get()) {
+        if (!Config.snapshot().statisticsLogging) {
             return;
         }
         
-        int totalAttempts = totalFixAttempts.get();
-        int successful = successfulFixes.get();
-        int failed = failedFixes.get();
+        long totalAttempts = stats.attempts();
+        long successful = stats.successes();
+        long failed = stats.failures();
         
         if (totalAttempts == 0) {
             ExperienceBarFixMod.LOGGER.info("📊 暂无修复尝试");
             return;
         }
         
-        double successRate = (double) successful / totalAttempts * 100;
+        // 最近窗口的各项计数来自同一个快照
+        RateWindow.Snapshot rates = stats.recent();
+        ExperienceBarFixMod.LOGGER.info("🕒 最近窗口 (每分钟平均):");
+        for (int w = 0; w < RateWindow.WINDOW_MINUTES.length; w++) {
+            long windowAttempts = rates.count(w, FixStatistics.RATE_ATTEMPTS);
+            ExperienceBarFixMod.LOGGER.info("  {} 分钟: 触发 {}, 尝试 {}, 成功率 {}%, 失败 {}, 错误 {}", 
+                RateWindow.WINDOW_MINUTES[w], 
+                FixLog.rate(FixStatistics.recentTriggers(rates, w) * 60.0 / Math.max(rates.seconds(w), 1)), 
+                FixLog.rate(rates.perMinute(w, FixStatistics.RATE_ATTEMPTS)), 
+                FixLog.percent(rates.count(w, FixStatistics.RATE_SUCCESSES), windowAttempts), 
+                FixLog.rate(rates.perMinute(w, FixStatistics.RATE_FAILURES)), 
+                FixLog.rate(rates.perMinute(w, FixStatistics.RATE_ERRORS)));
+        }
         
         ExperienceBarFixMod.LOGGER.info("📈 修复统计:");
         ExperienceBarFixMod.LOGGER.info("  总尝试次数: {}", totalAttempts);
-        ExperienceBarFixMod.LOGGER.info("  成功次数: {} ({:.1f}%)", successful, successRate);
-        ExperienceBarFixMod.LOGGER.info("  失败次数: {} ({:.1f}%)", failed, 100 - successRate);
+        ExperienceBarFixMod.LOGGER.info("  成功次数: {} ({}%)", successful, FixLog.percent(successful, totalAttempts));
+        ExperienceBarFixMod.LOGGER.info("  失败次数: {} ({}%)", failed, FixLog.percent(failed, totalAttempts));
         
         ExperienceBarFixMod.LOGGER.info("📊 事件类型分布:");
-        ExperienceBarFixMod.LOGGER.info("  传送指令: {}", teleportCommandFixes.get());
-        ExperienceBarFixMod.LOGGER.info("  维度变化: {}", dimensionChangeFixes.get());
-        ExperienceBarFixMod.LOGGER.info("  玩家重生: {}", respawnFixes.get());
-        ExperienceBarFixMod.LOGGER.info("  实体传送: {}", entityTeleportFixes.get());
+        ExperienceBarFixMod.LOGGER.info("  传送指令: {}", stats.triggers(TriggerSource.TELEPORT_COMMAND));
+        ExperienceBarFixMod.LOGGER.info("  维度变化: {}", stats.triggers(TriggerSource.DIMENSION_CHANGE));
+        ExperienceBarFixMod.LOGGER.info("  玩家重生: {}", stats.triggers(TriggerSource.RESPAWN));
+        ExperienceBarFixMod.LOGGER.info("  实体传送: {}", stats.triggers(TriggerSource.ENTITY_TELEPORT));
+        ExperienceBarFixMod.LOGGER.info("  合并到已有修复: {}", stats.merged());
+        ExperienceBarFixMod.LOGGER.info("  已被取消的传送: {}", stats.cancelledTeleports());
+        ExperienceBarFixMod.LOGGER.info("  未改变位置的传送: {}", stats.uncommittedTeleports());
         
         ExperienceBarFixMod.LOGGER.info("🔧 修复方法效果:");
-        ExperienceBarFixMod.LOGGER.info("  主要方法成功: {}", primaryMethodSuccess.get());
-        ExperienceBarFixMod.LOGGER.info("  备用方法成功: {}", fallbackMethodSuccess.get());
+        ExperienceBarFixMod.LOGGER.info("  主要方法成功: {}", stats.methodSuccesses(FixStatistics.METHOD_PACKET));
+        ExperienceBarFixMod.LOGGER.info("  备用方法成功: {}", stats.methodSuccesses(FixStatistics.METHOD_FALLBACK));
+        ExperienceBarFixMod.LOGGER.info("  客户端已是最新而跳过: {}", stats.suppressed());
+        ExperienceBarFixMod.LOGGER.info("  客户端确认后提前执行: {}", stats.expedited());
+        ExperienceBarFixMod.LOGGER.info("  防抖推迟: {} (受最长等待限制 {})", stats.debounced(), stats.debounceCapped());
+        
+        ExperienceBarFixMod.LOGGER.info("🧮 触发策略: {} {}, {} {}, {} {}", 
+            TriggerPolicy.ACTION_NAMES[TriggerPolicy.NOW], stats.policyDecisions(TriggerPolicy.NOW), 
+            TriggerPolicy.ACTION_NAMES[TriggerPolicy.LATER], stats.policyDecisions(TriggerPolicy.LATER), 
+            TriggerPolicy.ACTION_NAMES[TriggerPolicy.SKIP], stats.policyDecisions(TriggerPolicy.SKIP));
+        for (TriggerPolicy.Rule rule : Config.snapshot().triggerPolicy.rules()) {
+            ExperienceBarFixMod.LOGGER.info("  {}: 命中 {} 次", rule.text(), rule.hits());
+        }
         
         // 性能统计
-        if (totalAttempts > 0) {
-            long avgDuration = totalFixDuration.get() / totalAttempts;
-            double avgMs = avgDuration / 1_000_000.0;
-            double longestMs = longestFixDuration.get() / 1_000_000.0;
-            double shortestMs = shortestFixDuration.get() == Long.MAX_VALUE ? 0 : shortestFixDuration.get() / 1_000_000.0;
-            
-            ExperienceBarFixMod.LOGGER.info("⏱️ 性能统计:");
-            ExperienceBarFixMod.LOGGER.info("  平均修复时间: {:.2f}ms", avgMs);
-            ExperienceBarFixMod.LOGGER.info("  最长修复时间: {:.2f}ms", longestMs);
-            ExperienceBarFixMod.LOGGER.info("  最短修复时间: {:.2f}ms", shortestMs);
+        long avgDuration = stats.totalDurationNanos() / totalAttempts;
+        
+        ExperienceBarFixMod.LOGGER.info("⏱️ 性能统计:");
+        ExperienceBarFixMod.LOGGER.info("  平均修复时间: {}ms", FixLog.millis(avgDuration));
+        ExperienceBarFixMod.LOGGER.info("  最长修复时间: {}ms", FixLog.millis(stats.longestNanos()));
+        ExperienceBarFixMod.LOGGER.info("  最短修复时间: {}ms", FixLog.millis(stats.shortestNanos()));
+        
+        ExperienceBarFixMod.LOGGER.info("📐 延迟分布 (从触发到修复完成):");
+        for (TriggerSource source : TriggerSource.values()) {
+            logLatency(source.displayName(), stats.sourceNanos(source), stats.sourceTicks(source));
+        }
+        for (int i = 0; i < FixStatistics.METHOD_NAMES.length; i++) {
+            logLatency(FixStatistics.METHOD_NAMES[i], stats.methodNanos(i), stats.methodTicks(i));
+        }
+        
+        ExperienceBarFixMod.LOGGER.info("🧭 阶段耗时:");
+        for (int i = 0; i < FixStatistics.PHASE_NAMES.length; i++) {
+            logLatency(FixStatistics.PHASE_NAMES[i], stats.phaseNanos(i), stats.phaseTicks(i));
+        }
+        logLatency("等待期间的刻超时", stats.tickOverrun(), null);
+        logLatency("每刻修复工作量", stats.tickWork(), null);
+        if (stats.budgetExhaustedTicks() > 0) {
+            ExperienceBarFixMod.LOGGER.info("⏳ 每刻预算: {} 个游戏刻用完预算, 共顺延 {} 个修复·刻, 最大积压 {}", 
+                stats.budgetExhaustedTicks(), stats.deferredFixes(), stats.peakBacklog());
         }
         
         // 错误统计
-        if (!errorCounts.isEmpty()) {
+        if (!stats.errorCounts().isEmpty()) {
             ExperienceBarFixMod.LOGGER.info("❌ 错误统计:");
-            errorCounts.forEach((errorType, count) -> 
+            stats.errorCounts().forEach((errorType, count) -> 
                 ExperienceBarFixMod.LOGGER.info("  {}: {}", errorType, count.get()));
         }
         
+        CounterFile counters = stats.counterFile();
+        if (counters.path() != null) {
+            long lifetimeAttempts = stats.lifetimeAttempts();
+            ExperienceBarFixMod.LOGGER.info("📚 累计 (跨重启, 共 {} 次启动): 尝试 {} 次, 成功 {} 次 ({}%), 失败 {} 次", 
+                counters.opens(), lifetimeAttempts, stats.lifetimeSuccesses(), 
+                FixLog.percent(stats.lifetimeSuccesses(), lifetimeAttempts), stats.lifetimeFailures());
+        }
+        
+        FixJournal current = journal;
+        if (current != null) {
+            ExperienceBarFixMod.LOGGER.info("📓 事件日志: 已写入 {} 条, 等待写入 {} 条, 丢弃 {} 条", 
+                current.drained(), current.size(), current.dropped());
+        }
+        
         // 活跃玩家统计
-        ExperienceBarFixMod.LOGGER.info("👥 当前活跃玩家: {}", playerSessions.size());
-        ExperienceBarFixMod.LOGGER.info("⏳ 待处理修复: {}", pendingFix.size());
+        ExperienceBarFixMod.LOGGER.info("👥 当前活跃玩家: {}", players.size());
+        ExperienceBarFixMod.LOGGER.info("⏳ 待处理修复: {} (其中已到期、等待预算 {})", players.pendingCount(), scheduler.backlogSize());
+    }
+    
+    /**
+     * 设置异步事件日志，传入 null 停止记录
+     */
+    static void setJournal(FixJournal value) {
+        journal = value;
+        scheduler.setJournal(value);
+    }
+    
+    /**
+     * 修复统计信息，只读使用
+     */
+    static FixStatistics statistics() {
+        return stats;
+    }
+    
+    /**
+     * 以 OpenMetrics 格式输出所有计数器和延迟分布
+     * <p>
+     * 由监控端点的线程调用，只读取原子计数器和直方图。
+     */
+    static void writeMetrics(OpenMetricsWriter out) {
+        stats.writeMetrics(out, players.size(), players.pendingCount(), scheduler.backlogSize());
+        
+        out.family("policy_rule_hits", "counter", "Triggers matched by each policy rule since the rules were loaded");
+        for (TriggerPolicy.Rule rule : Config.snapshot().triggerPolicy.rules()) {
+            out.counter("policy_rule_hits", "rule", rule.text(), rule.hits());
+        }
+        
+        FixJournal current = journal;
+        if (current != null) {
+            out.family("journal_records", "counter", "Fix events handed to the journal writer")
+                .counter("journal_records", current.drained());
+            out.family("journal_dropped", "counter", "Fix events dropped because the journal buffer was full")
+                .counter("journal_dropped", current.dropped());
+            out.family("journal_backlog", "gauge", "Fix events waiting to be written")
+                .gauge("journal_backlog", current.size());
+        }
     }
     
     /**
@@ -632,13 +953,14 @@ public class ExperienceBarFixer {
         logStatistics();
         
         // 记录玩家会话摘要
-        if (!playerSessions.isEmpty()) {
+        if (players.size() > 0) {
             ExperienceBarFixMod.LOGGER.info("👤 玩家会话摘要:");
-            playerSessions.values().forEach(session -> {
-                String duration = getSessionDuration(session);
-                ExperienceBarFixMod.LOGGER.info("  {}: {} 会话时长, {} 次修复", 
-                    session.playerName, duration, session.fixesApplied);
-            });
+            for (int slot = 0; slot < players.capacity(); slot++) {
+                if (players.isOccupied(slot)) {
+                    ExperienceBarFixMod.LOGGER.info("  {}: {}分钟 会话时长, {} 次修复", 
+                        players.name(slot), getSessionMinutes(slot), players.fixCount(slot));
+                }
+            }
         }
         
         ExperienceBarFixMod.LOGGER.info("=== 经验条修复器运行结束 ===");
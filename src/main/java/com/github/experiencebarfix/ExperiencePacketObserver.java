@@ -0,0 +1,223 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundPlayerPositionPacket;
+import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
+import net.minecraft.network.protocol.game.ServerboundAcceptTeleportationPacket;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Queue;
+import java.util.UUID;
+
+/**
+ * 观察发往单个玩家的经验数据包
+ * <p>
+ * 作为出站处理器安装在玩家连接的 Netty 管线中，记录最近一次写出的 (进度, 总经验, 等级)。
+ * 修复执行前据此判断客户端自触发以来是否已经收到了当前的经验值，从而跳过多余的重新同步。
+ * <p>
+ * 主线程发送的数据包按发送顺序排入连接的事件循环，稍后才真正写出。触发时由 {@link #markTrigger()}
+ * 在事件循环中排入一个标记，标记之前写出的数据包都是在触发之前发送的，不能作为客户端已是最新的依据；
+ * 每次写出都带上写出时最近的标记，整体替换一个不可变的记录，服务器主线程读取同一个引用即可得到一致的快照。
+ * <p>
+ * 同时观察客户端发来的传送确认：主线程在安排修复的那一刻结束时调用 {@link #awaitTeleportAck()}，
+ * 这时本刻传送发出的位置数据包已经排在前面；只有与最近写出的位置数据包编号相同的确认才会把玩家 UUID
+ * 放入确认队列，之前传送的迟到确认被忽略，由主线程在刻结束时取出并提前执行修复。
+ */
+final class ExperiencePacketObserver extends ChannelDuplexHandler {
+    
+    static final String HANDLER_NAME = ExperienceBarFixMod.MODID + ":xp_observer";
+    
+    // 原版连接管线中处理数据包的处理器名称
+    private static final String PACKET_HANDLER = "packet_handler";
+    
+    // 还没有写出或确认过位置数据包
+    private static final int NO_TELEPORT = Integer.MIN_VALUE;
+    
+    private final Channel channel;
+    
+    // 已发出的触发标记数量，只在服务器主线程上修改
+    private long triggers;
+    
+    // 事件循环已经处理到的触发标记，只在事件循环线程上使用
+    private long marked;
+    
+    // 最近一次写出的经验数据包，只由事件循环线程替换
+    private volatile Sent last = Sent.NONE;
+    
+    // 传送确认：以下字段只在事件循环线程上使用，确认后通知主线程
+    private final UUID playerId;
+    private final Queue<UUID> acknowledgements;
+    private int lastTeleportId = NO_TELEPORT;
+    private int lastAckedId = NO_TELEPORT;
+    private boolean awaitingAck;
+    
+    private ExperiencePacketObserver(Channel channel, UUID playerId, Queue<UUID> acknowledgements) {
+        this.channel = channel;
+        this.playerId = playerId;
+        this.acknowledgements = acknowledgements;
+    }
+    
+    /**
+     * 为玩家连接安装观察器
+     *
+     * @param acknowledgements 收到传送确认时放入玩家 UUID 的队列
+     * @return 安装成功的观察器，没有真实网络连接（例如模拟玩家）时返回 null
+     */
+    static ExperiencePacketObserver attach(ServerPlayer player, Queue<UUID> acknowledgements) {
+        if (player.connection == null) {
+            return null;
+        }
+        Connection connection = player.connection.connection;
+        Channel channel = connection == null ? null : connection.channel();
+        if (channel == null) {
+            return null;
+        }
+        
+        ExperiencePacketObserver observer = new ExperiencePacketObserver(channel, player.getUUID(), acknowledgements);
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(HANDLER_NAME) != null) {
+            pipeline.remove(HANDLER_NAME);
+        }
+        // 出站数据包从管线尾部经过 packet_handler 之后才到达这里，编码之前即可看到数据包对象；
+        // 入站数据包在解码之后、交给 packet_handler 之前经过这里
+        if (pipeline.get(PACKET_HANDLER) != null) {
+            pipeline.addBefore(PACKET_HANDLER, HANDLER_NAME, observer);
+        } else {
+            // 内存通道（例如模拟玩家）没有编解码器，直接收发数据包对象
+            pipeline.addFirst(HANDLER_NAME, observer);
+        }
+        return observer;
+    }
+    
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ClientboundSetExperiencePacket packet) {
+            observe(packet);
+        } else if (msg instanceof ClientboundPlayerPositionPacket position) {
+            lastTeleportId = position.getId();
+        } else if (msg instanceof ClientboundBundlePacket bundle) {
+            for (Packet<?> packet : bundle.subPackets()) {
+                if (packet instanceof ClientboundSetExperiencePacket experience) {
+                    observe(experience);
+                }
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+    
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ServerboundAcceptTeleportationPacket ack) {
+            lastAckedId = ack.getId();
+            // 与原版相同，只有最近一次传送的确认表示客户端已经到达新位置
+            if (awaitingAck && lastAckedId == lastTeleportId) {
+                acknowledge();
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+    
+    /**
+     * 在连接的事件循环中按发送顺序执行，排在此前从主线程发送的数据包之后
+     */
+    private void runInEventLoop(Runnable task) {
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            task.run();
+        } else if (channel.isOpen()) {
+            loop.execute(task);
+        }
+    }
+    
+    /**
+     * 在服务器主线程上记下一次触发，返回执行时传给 {@link #isUpToDate} 的基准
+     * <p>
+     * 只有在这之后从主线程发送的经验数据包才会被认为是触发之后收到的。
+     */
+    long markTrigger() {
+        long mark = ++triggers;
+        runInEventLoop(() -> marked = mark);
+        return mark;
+    }
+    
+    /**
+     * 等待客户端确认最近一次传送，在服务器主线程上于安排修复的那一刻结束时调用
+     */
+    void awaitTeleportAck() {
+        runInEventLoop(() -> {
+            if (lastTeleportId != NO_TELEPORT && lastAckedId == lastTeleportId) {
+                // 客户端在刻结束之前就已经确认
+                acknowledge();
+            } else {
+                awaitingAck = true;
+            }
+        });
+    }
+    
+    private void acknowledge() {
+        awaitingAck = false;
+        acknowledgements.offer(playerId);
+    }
+    
+    private void observe(ClientboundSetExperiencePacket packet) {
+        last = new Sent(marked, Float.floatToIntBits(packet.getExperienceProgress()), 
+            packet.getTotalExperience(), packet.getExperienceLevel());
+    }
+    
+    /**
+     * 客户端最近收到的经验数据包是否在基准对应的触发之后发送，并且与给定值相同
+     */
+    boolean isUpToDate(long since, float progress, int total, int level) {
+        Sent sent = last;
+        return sent.mark >= since
+            && Float.floatToIntBits(progress) == sent.progressBits
+            && total == sent.totalExperience
+            && level == sent.experienceLevel;
+    }
+    
+    /**
+     * 一次写出的经验值和写出时事件循环已处理到的触发标记，发布后不再修改
+     */
+    private static final class Sent {
+        
+        static final Sent NONE = new Sent(0L, 0, 0, 0);
+        
+        final long mark;
+        final int progressBits;
+        final int totalExperience;
+        final int experienceLevel;
+        
+        Sent(long mark, int progressBits, int totalExperience, int experienceLevel) {
+            this.mark = mark;
+            this.progressBits = progressBits;
+            this.totalExperience = totalExperience;
+            this.experienceLevel = experienceLevel;
+        }
+    }
+}
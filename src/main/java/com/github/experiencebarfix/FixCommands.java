@@ -0,0 +1,288 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.FixScheduler;
+import com.github.experiencebarfix.core.FixSnapshot;
+import com.github.experiencebarfix.core.FixStatistics;
+import com.github.experiencebarfix.core.RateWindow;
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 管理命令 /xpfix
+ * <p>
+ * 所有查询只读取 {@link ExperienceBarFixer#snapshot()} 发布的不可变快照，
+ * 不遍历正在变化的玩家表和错误计数，输出中注明快照是几刻之前的状态。
+ * 会话列表按页输出，每页 {@value #PAGE_SIZE} 条。
+ */
+@Mod.EventBusSubscriber(modid = ExperienceBarFixMod.MODID)
+public final class FixCommands {
+    
+    // 需要的权限等级，与原版的管理命令相同
+    private static final int PERMISSION_LEVEL = 2;
+    
+    private static final int PAGE_SIZE = 10;
+    
+    // 错误统计只显示次数最多的几种
+    private static final int MAX_ERROR_LINES = 5;
+    
+    private static final SuggestionProvider<CommandSourceStack> SESSION_NAMES = (context, builder) -> 
+        SharedSuggestionProvider.suggest(ExperienceBarFixer.snapshot().sessions().stream().map(FixSnapshot.Session::name), builder);
+    
+    private FixCommands() {
+    }
+    
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal("xpfix")
+            .requires(source -> source.hasPermission(PERMISSION_LEVEL))
+            .then(Commands.literal("stats")
+                .executes(context -> stats(context.getSource())))
+            .then(Commands.literal("player")
+                .then(Commands.argument("name", StringArgumentType.word())
+                    .suggests(SESSION_NAMES)
+                    .executes(context -> player(context.getSource(), StringArgumentType.getString(context, "name")))))
+            .then(paged("top", FixCommands::top))
+            .then(paged("pending", FixCommands::pending))
+            .then(Commands.literal("reset")
+                .executes(context -> reset(context.getSource()))));
+        ExperienceBarFixMod.LOGGER.info("✓ 管理命令 /xpfix 已注册");
+    }
+    
+    /**
+     * 带可选页码参数的子命令
+     */
+    private static LiteralArgumentBuilder<CommandSourceStack> paged(String name, PageCommand command) {
+        return Commands.literal(name)
+            .executes(context -> command.run(context.getSource(), 1))
+            .then(Commands.argument("page", IntegerArgumentType.integer(1))
+                .executes(context -> command.run(context.getSource(), IntegerArgumentType.getInteger(context, "page"))));
+    }
+    
+    @FunctionalInterface
+    private interface PageCommand {
+        int run(CommandSourceStack source, int page);
+    }
+    
+    // ---- 子命令 ----
+    
+    /**
+     * /xpfix stats
+     */
+    private static int stats(CommandSourceStack source) {
+        FixSnapshot snapshot = ExperienceBarFixer.snapshot();
+        header(source, "经验条修复统计", snapshot);
+        
+        long attempts = snapshot.attempts();
+        line(source, "📈 尝试 " + attempts + " 次, 成功 " + snapshot.successes() 
+            + " (" + FixLog.percent(snapshot.successes(), attempts) + "%), 失败 " + snapshot.failures() 
+            + " (" + FixLog.percent(snapshot.failures(), attempts) + "%)");
+        
+        RateWindow.Snapshot rates = snapshot.recent();
+        StringBuilder recent = new StringBuilder("🕒 最近");
+        for (int w = 0; w < RateWindow.WINDOW_MINUTES.length; w++) {
+            recent.append(w == 0 ? " " : " / ").append(RateWindow.WINDOW_MINUTES[w]).append(" 分钟: 触发 ")
+                .append(FixStatistics.recentTriggers(rates, w)).append(", 失败 ")
+                .append(rates.count(w, FixStatistics.RATE_FAILURES));
+        }
+        line(source, recent.toString());
+        
+        StringBuilder triggers = new StringBuilder("📊 触发:");
+        for (TriggerSource triggerSource : TriggerSource.values()) {
+            triggers.append(' ').append(triggerSource.displayName()).append(' ').append(snapshot.triggers(triggerSource)).append(',');
+        }
+        line(source, triggers.append(" 合并 ").append(snapshot.merged())
+            .append(", 已取消的传送 ").append(snapshot.cancelledTeleports())
+            .append(", 未移动的传送 ").append(snapshot.uncommittedTeleports()).toString());
+        
+        line(source, "🔧 " + FixStatistics.METHOD_NAMES[FixStatistics.METHOD_PACKET] + " " 
+            + snapshot.methodSuccesses(FixStatistics.METHOD_PACKET) + ", " 
+            + FixStatistics.METHOD_NAMES[FixStatistics.METHOD_FALLBACK] + " " 
+            + snapshot.methodSuccesses(FixStatistics.METHOD_FALLBACK) + ", 已是最新 " + snapshot.suppressed() 
+ + ", 确认后提前执行 " + snapshot.expedited() 
+            + ", 防抖推迟 " + snapshot.debounced());
+        
+        StringBuilder policy = new StringBuilder("🧮 触发策略:");
+        for (int i = 0; i < TriggerPolicy.ACTION_IDS.length; i++) {
+            policy.append(i == 0 ? " " : ", ").append(TriggerPolicy.ACTION_NAMES[i]).append(' ').append(snapshot.policyDecisions(i));
+        }
+        line(source, policy.toString());
+        
+        line(source, "⏱️ 平均 " + FixLog.millis(snapshot.averageNanos()) + "ms, 最长 " 
+            + FixLog.millis(snapshot.longestNanos()) + "ms, 最短 " + FixLog.millis(snapshot.shortestNanos()) + "ms");
+        
+        for (TriggerSource triggerSource : TriggerSource.values()) {
+            long count = snapshot.latencyCount(triggerSource);
+            if (count > 0) {
+                line(source, "📐 " + triggerSource.displayName() + ": p50 " 
+                    + FixLog.millis(snapshot.latencyP50Nanos(triggerSource)) + "ms, p99 " 
+                    + FixLog.millis(snapshot.latencyP99Nanos(triggerSource)) + "ms (" + count + " 次)");
+            }
+        }
+        
+        if (!snapshot.errors().isEmpty()) {
+            int shown = 0;
+            for (Map.Entry<String, Long> error : snapshot.errors().entrySet()) {
+                if (shown++ == MAX_ERROR_LINES) {
+                    line(source, "  ... 共 " + snapshot.errors().size() + " 种错误");
+                    break;
+                }
+                source.sendSuccess(() -> Component.literal("❌ " + error.getKey() + ": " + error.getValue())
+                    .withStyle(ChatFormatting.RED), false);
+            }
+        }
+        
+        if (snapshot.persistent()) {
+            line(source, "📚 累计 (共 " + snapshot.starts() + " 次启动): 尝试 " + snapshot.lifetimeAttempts() 
+                + ", 成功 " + snapshot.lifetimeSuccesses() + ", 失败 " + snapshot.lifetimeFailures());
+        }
+        
+        line(source, "👥 活跃会话 " + snapshot.sessions().size() + ", ⏳ 待处理修复 " + snapshot.pending().size() 
+            + " (等待每刻预算 " + snapshot.backlog() + ")");
+        return 1;
+    }
+    
+    /**
+     * /xpfix player &lt;name&gt;
+     */
+    private static int player(CommandSourceStack source, String name) {
+        FixSnapshot snapshot = ExperienceBarFixer.snapshot();
+        FixSnapshot.Session session = snapshot.find(name);
+        if (session == null) {
+            source.sendFailure(Component.literal("没有玩家 " + name + " 的会话 (快照: " + age(source, snapshot) + " 刻前)"));
+            return 0;
+        }
+        
+        header(source, "玩家 " + session.name(), snapshot);
+        long now = snapshot.capturedMillis();
+        line(source, "UUID: " + session.id());
+        line(source, "会话时长: " + (now - session.joinMillis()) / 60_000L + " 分钟");
+        line(source, "修复次数: " + session.fixCount());
+        line(source, "最近修复: " + (session.lastFixMillis() == 0 
+            ? "无" : (now - session.lastFixMillis()) / 1000L + " 秒前"));
+        line(source, "等待中的修复: " + (session.pending() 
+            ? TriggerSource.describe(session.pendingSources()) + ", " + due(session) : "无"));
+        return 1;
+    }
+    
+    /**
+     * /xpfix top [页码]
+     */
+    private static int top(CommandSourceStack source, int page) {
+        FixSnapshot snapshot = ExperienceBarFixer.snapshot();
+        long now = snapshot.capturedMillis();
+        List<FixSnapshot.Session> sessions = snapshot.topByFixes();
+        return page(source, snapshot, "修复次数最多的玩家", "top", sessions.size(), page, i -> {
+            FixSnapshot.Session session = sessions.get(i);
+            return "#" + (i + 1) + " " + session.name() + " - " + session.fixCount() + " 次修复, 会话 " 
+                + (now - session.joinMillis()) / 60_000L + " 分钟";
+        });
+    }
+    
+    /**
+     * /xpfix pending [页码]
+     */
+    private static int pending(CommandSourceStack source, int page) {
+        FixSnapshot snapshot = ExperienceBarFixer.snapshot();
+        List<FixSnapshot.Session> sessions = snapshot.pending();
+        return page(source, snapshot, "等待中的修复", "pending", sessions.size(), page, i -> {
+            FixSnapshot.Session session = sessions.get(i);
+            return session.name() + " - " + TriggerSource.describe(session.pendingSources()) + ", " + due(session);
+        });
+    }
+    
+    /**
+     * 等待中的修复的执行时间
+     */
+    private static String due(FixSnapshot.Session session) {
+        return session.dueTick() == FixScheduler.QUEUED ? "已到期, 等待每刻预算" : "第 " + session.dueTick() + " 刻执行";
+    }
+    
+    /**
+     * /xpfix reset
+     */
+    private static int reset(CommandSourceStack source) {
+        ExperienceBarFixer.resetStatistics();
+        ExperienceBarFixMod.LOGGER.info("🔄 统计信息已由 {} 通过命令重置", source.getTextName());
+        source.sendSuccess(() -> Component.literal("🔄 经验条修复统计信息已重置，累计值保持不变")
+            .withStyle(ChatFormatting.GREEN), true);
+        return 1;
+    }
+    
+    // ---- 输出 ----
+    
+    /**
+     * 输出第 page 页，format 按条目在整个列表中的下标生成一行
+     */
+    private static int page(CommandSourceStack source, FixSnapshot snapshot, String title, String command, 
+                            int total, int page, IntFunction<String> format) {
+        int pages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+        if (page > pages) {
+            source.sendFailure(Component.literal("页码超出范围，共 " + pages + " 页"));
+            return 0;
+        }
+        
+        header(source, title + " (第 " + page + "/" + pages + " 页, 共 " + total + " 条)", snapshot);
+        if (total == 0) {
+            line(source, "无");
+        }
+        int end = Math.min(total, page * PAGE_SIZE);
+        for (int i = (page - 1) * PAGE_SIZE; i < end; i++) {
+            line(source, format.apply(i));
+        }
+        if (page < pages) {
+            source.sendSuccess(() -> Component.literal("下一页: /xpfix " + command + " " + (page + 1))
+                .withStyle(ChatFormatting.GRAY), false);
+        }
+        return total;
+    }
+    
+    private static void header(CommandSourceStack source, String title, FixSnapshot snapshot) {
+        String text = "=== " + title + " (快照: " + age(source, snapshot) + " 刻前) ===";
+        source.sendSuccess(() -> Component.literal(text).withStyle(ChatFormatting.GOLD), false);
+    }
+    
+    private static void line(CommandSourceStack source, String text) {
+        source.sendSuccess(() -> Component.literal(text), false);
+    }
+    
+    /**
+     * 快照距当前游戏刻的刻数
+     */
+    private static long age(CommandSourceStack source, FixSnapshot snapshot) {
+        return Math.max(0, source.getServer().getTickCount() - snapshot.tick());
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.FixJournal;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 把 {@link FixJournal} 中的修复事件异步写入磁盘
+ * <p>
+ * 服务器主线程只向环形缓冲区写入基本类型记录，格式化、压缩和文件 I/O 都在单独的守护线程上进行。
+ * 事件写入 {@code logs/experiencebarfix/} 下的 gzip 压缩 JSONL 文件，按天和大小滚动，只保留最近的文件。
+ */
+final class FixJournalWriter implements Runnable {
+    
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".jsonl.gz";
+    
+    // 单个文件未压缩的最大字符数，超过后滚动到新文件
+    private static final long MAX_FILE_CHARS = 64L * 1024 * 1024;
+    private static final int MAX_FILES = 30;
+    
+    // 每次取出的记录数和空闲时的等待时间
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private static FixJournalWriter current;
+    
+    // 服务器运行期间为 true，配置重载只在此期间生效
+    private static boolean active;
+    
+    private final FixJournal journal;
+    private final int configuredCapacity;
+    private final Path directory;
+    private final Thread thread;
+    private volatile boolean running = true;
+    
+    private Writer out;
+    private LocalDate fileDate;
+    private long fileChars;
+    private boolean unflushed;
+    
+    private FixJournalWriter(int capacity, Path directory) {
+        this.journal = new FixJournal(capacity);
+        this.configuredCapacity = capacity;
+        this.directory = directory;
+        this.thread = new Thread(this, "ExperienceBarFix-Journal");
+        this.thread.setDaemon(true);
+    }
+    
+    /**
+     * 服务器启动时按配置启动事件日志
+     */
+    static synchronized void start(ConfigSnapshot config) {
+        active = true;
+        apply(config);
+    }
+    
+    /**
+     * 配置重载后启动、停止或按新容量重建事件日志
+     */
+    static synchronized void reload(ConfigSnapshot config) {
+        if (active) {
+            apply(config);
+        }
+    }
+    
+    /**
+     * 服务器停止时写出剩余的记录并关闭文件
+     */
+    static synchronized void shutdown() {
+        active = false;
+        stop();
+    }
+    
+    private static void apply(ConfigSnapshot config) {
+        if (!config.journalEnabled) {
+            stop();
+            return;
+        }
+        if (current != null && current.configuredCapacity == config.journalCapacity) {
+            return;
+        }
+        
+        stop();
+        Path directory = FMLPaths.GAMEDIR.get().resolve("logs").resolve(ExperienceBarFixMod.MODID);
+        current = new FixJournalWriter(config.journalCapacity, directory);
+        current.thread.start();
+        ExperienceBarFixer.setJournal(current.journal);
+        ExperienceBarFixMod.LOGGER.info("✓ 修复事件日志已启动: {}, 缓冲区 {} 条", directory, current.journal.capacity());
+    }
+    
+    private static void stop() {
+        if (current == null) {
+            return;
+        }
+        
+        // 先停止生产，再让写入线程写完剩余的记录
+        ExperienceBarFixer.setJournal(null);
+        FixJournalWriter writer = current;
+        current = null;
+        writer.running = false;
+        LockSupport.unpark(writer.thread);
+        try {
+            writer.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        long dropped = writer.journal.dropped();
+        if (dropped > 0) {
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 修复事件日志已停止: 写入 {} 条, 因缓冲区已满丢弃 {} 条", 
+                writer.journal.drained(), dropped);
+        } else {
+            ExperienceBarFixMod.LOGGER.info("✓ 修复事件日志已停止: 写入 {} 条", writer.journal.drained());
+        }
+    }
+    
+    @Override
+    public void run() {
+        StringBuilder text = new StringBuilder(256 * 1024);
+        try {
+            while (true) {
+                int count = journal.drainTo(text, DRAIN_BATCH);
+                if (count > 0) {
+                    write(text);
+                    text.setLength(0);
+                    continue;
+                }
+                
+                // 缓冲区已空：刷新到磁盘后等待新的记录
+                if (unflushed) {
+                    out.flush();
+                    unflushed = false;
+                }
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        } catch (IOException | RuntimeException e) {
+            ExperienceBarFixMod.LOGGER.error("❌ 写入修复事件日志失败，后续记录将被丢弃: {}", e.getMessage());
+        } finally {
+            close();
+        }
+    }
+    
+    private void write(StringBuilder text) throws IOException {
+        LocalDate today = LocalDate.now();
+        if (out == null || !today.equals(fileDate) || fileChars >= MAX_FILE_CHARS) {
+            roll(today);
+        }
+        out.append(text);
+        fileChars += text.length();
+        unflushed = true;
+    }
+    
+    /**
+     * 关闭当前文件，按日期和序号打开新文件，并删除超出数量的旧文件
+     */
+    private void roll(LocalDate today) throws IOException {
+        close();
+        Files.createDirectories(directory);
+        
+        Path path;
+        int index = 1;
+        do {
+            path = directory.resolve(FILE_PREFIX + today + "-" + index++ + FILE_SUFFIX);
+        } while (Files.exists(path));
+        
+        // 同步刷新模式：每次空闲时刷新的内容都是完整可解压的 gzip 块
+        out = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(Files.newOutputStream(path), 64 * 1024, true), StandardCharsets.UTF_8), 64 * 1024);
+        fileDate = today;
+        fileChars = 0;
+        
+        prune();
+    }
+    
+    private void prune() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 无法列出修复事件日志文件: {}", e.getMessage());
+            return;
+        }
+        if (files.size() <= MAX_FILES) {
+            return;
+        }
+        
+        files.sort(Comparator.comparing(FixJournalWriter::modifiedTime));
+        for (int i = 0; i < files.size() - MAX_FILES; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ 无法删除旧的修复事件日志 {}: {}", files.get(i), e.getMessage());
+            }
+        }
+    }
+    
+    private static FileTime modifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+    
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            ExperienceBarFixMod.LOGGER.warn("⚠️ 关闭修复事件日志文件时发生错误: {}", e.getMessage());
+        }
+        out = null;
+        unflushed = false;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.function.Supplier;
+
+/**
+ * 修复路径上使用的日志门面
+ * <p>
+ * 每个分类先检查配置快照，再检查 Log4j 的级别和标记，分类关闭时不做任何工作也不分配对象。
+ * 只使用 Log4j 的固定参数重载，基本类型参数通过 {@link Unbox} 装箱，避免可变参数数组和包装对象。
+ * 代价较高的参数应使用 {@link Supplier} 重载，或在调用前用 {@code isXxxEnabled} 判断。
+ */
+final class FixLog {
+    
+    private static final Logger LOGGER = ExperienceBarFixMod.LOGGER;
+    
+    // 日志分类标记，可在 Log4j 配置中按标记过滤
+    static final Marker DEBUG = MarkerManager.getMarker("EXPERIENCEBARFIX_DEBUG");
+    static final Marker PERFORMANCE = MarkerManager.getMarker("EXPERIENCEBARFIX_PERFORMANCE");
+    static final Marker TRACKING = MarkerManager.getMarker("EXPERIENCEBARFIX_TRACKING");
+    
+    private FixLog() {
+    }
+    
+    /**
+     * 调试日志是否启用
+     */
+    static boolean isDebugEnabled(ConfigSnapshot config) {
+        return config.debugLogging && LOGGER.isDebugEnabled(DEBUG);
+    }
+    
+    static boolean isDebugEnabled() {
+        return isDebugEnabled(Config.snapshot());
+    }
+    
+    /**
+     * 性能日志是否启用
+     */
+    static boolean isPerformanceEnabled(ConfigSnapshot config) {
+        return config.performanceLogging && LOGGER.isInfoEnabled(PERFORMANCE);
+    }
+    
+    /**
+     * 玩家跟踪日志是否启用
+     */
+    static boolean isTrackingEnabled(ConfigSnapshot config) {
+        return config.playerTrackingLogging && LOGGER.isInfoEnabled(TRACKING);
+    }
+    
+    static boolean isTrackingEnabled() {
+        return isTrackingEnabled(Config.snapshot());
+    }
+    
+    // ---- 调试日志 ----
+    
+    static void debug(String message, Object p0) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0);
+        }
+    }
+    
+    static void debug(String message, Object p0, Object p1) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0, p1);
+        }
+    }
+    
+    static void debug(String message, Object p0, Object p1, Object p2) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0, p1, p2);
+        }
+    }
+    
+    static void debug(String message, Object p0, Object p1, Object p2, Object p3) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0, p1, p2, p3);
+        }
+    }
+    
+    static void debug(String message, Object p0, Supplier<?> p1) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0, p1.get());
+        }
+    }
+    
+    /**
+     * 记录经验值状态，进度保留三位小数
+     */
+    static void debugExperience(String message, Object p0, Object p1, int total, int level, float progress) {
+        if (isDebugEnabled()) {
+            LOGGER.debug(DEBUG, message, p0, p1, Unbox.box(total), Unbox.box(level), Unbox.box(round(progress, 1000)));
+        }
+    }
+    
+    // ---- 玩家跟踪日志 ----
+    
+    static void tracking(String message, Object p0) {
+        if (isTrackingEnabled()) {
+            LOGGER.info(TRACKING, message, p0);
+        }
+    }
+    
+    static void tracking(String message, Object p0, Object p1) {
+        if (isTrackingEnabled()) {
+            LOGGER.info(TRACKING, message, p0, p1);
+        }
+    }
+    
+    static void tracking(String message, Object p0, Object p1, long p2) {
+        if (isTrackingEnabled()) {
+            LOGGER.info(TRACKING, message, p0, p1, Unbox.box(p2));
+        }
+    }
+    
+    static void tracking(String message, Object p0, long p1, long p2) {
+        if (isTrackingEnabled()) {
+            LOGGER.info(TRACKING, message, p0, Unbox.box(p1), Unbox.box(p2));
+        }
+    }
+    
+    // ---- 性能日志 ----
+    
+    /**
+     * 记录单项操作耗时，以毫秒输出并保留两位小数
+     */
+    static void performance(String operation, long durationNanos) {
+        if (isPerformanceEnabled(Config.snapshot())) {
+            LOGGER.info(PERFORMANCE, "⏱️ 性能: {} 耗时 {}ms", operation, Unbox.box(millis(durationNanos)));
+        }
+    }
+    
+    static void performance(String message, long count, long durationNanos) {
+        if (isPerformanceEnabled(Config.snapshot())) {
+            LOGGER.info(PERFORMANCE, message, Unbox.box(count), Unbox.box(millis(durationNanos)));
+        }
+    }
+    
+    /**
+     * 记录计数类的性能数据
+     */
+    static void performanceValue(String message, long value) {
+        if (isPerformanceEnabled(Config.snapshot())) {
+            LOGGER.info(PERFORMANCE, message, Unbox.box(value));
+        }
+    }
+    
+    // ---- 常规日志 ----
+    
+    static void info(String message, long p0, long p1, long p2) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(message, Unbox.box(p0), Unbox.box(p1), Unbox.box(p2));
+        }
+    }
+    
+    static void info(String message, long p0, long p1, long p2, long p3) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(message, Unbox.box(p0), Unbox.box(p1), Unbox.box(p2), Unbox.box(p3));
+        }
+    }
+    
+    static void warn(String message, long p0, long p1, long p2) {
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn(message, Unbox.box(p0), Unbox.box(p1), Unbox.box(p2));
+        }
+    }
+    
+    // ---- 数值格式 ----
+    
+    /**
+     * 纳秒转换为保留两位小数的毫秒
+     */
+    static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+    
+    /**
+     * 百分比保留一位小数
+     */
+    static double percent(long part, long total) {
+        return total == 0 ? 0.0 : Math.round(part * 1000.0 / total) / 10.0;
+    }
+    
+    /**
+     * 保留一位小数的每分钟次数
+     */
+    static double rate(double perMinute) {
+        return Math.round(perMinute * 10.0) / 10.0;
+    }
+    
+    private static double round(float value, int scale) {
+        return Math.round(value * (double) scale) / (double) scale;
+    }
+}
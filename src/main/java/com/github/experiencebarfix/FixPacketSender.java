@@ -0,0 +1,87 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 修复数据包的合并发送路径
+ * <p>
+ * 先收集单个玩家的所有重新同步数据包，多个时合并为一个 {@link ClientboundBundlePacket}，
+ * 再通过 {@code Connection.send} 一次发送；发送经过原版的待发送队列和其他模组在连接上的处理。
+ * <p>
+ * 只能在服务器主线程上使用。
+ */
+final class FixPacketSender {
+    
+    // 当前玩家等待发送的数据包
+    private static final List<Packet<ClientGamePacketListener>> staged = new ArrayList<>();
+    
+    private FixPacketSender() {
+    }
+    
+    /**
+     * 为当前玩家添加一个待发送的数据包
+     */
+    static void add(Packet<ClientGamePacketListener> packet) {
+        staged.add(packet);
+    }
+    
+    /**
+     * 当前玩家已添加、尚未发送的数据包数量
+     */
+    static int stagedCount() {
+        return staged.size();
+    }
+    
+    /**
+     * 将已添加的数据包合并后发送给玩家
+     *
+     * @return 发送的数据包数量
+     */
+    static int writeTo(ServerPlayer player) {
+        int count = staged.size();
+        if (count == 0) {
+            return 0;
+        }
+        
+        try {
+            Packet<ClientGamePacketListener> packet = count == 1
+                ? staged.get(0)
+                : new ClientboundBundlePacket(new ArrayList<>(staged));
+            player.connection.send(packet);
+            return count;
+        } finally {
+            staged.clear();
+        }
+    }
+    
+    /**
+     * 丢弃已添加但尚未发送的数据包
+     */
+    static void discard() {
+        staged.clear();
+    }
+}
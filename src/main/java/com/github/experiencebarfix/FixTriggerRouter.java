@@ -0,0 +1,144 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.TriggerContext;
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.entity.EntityTeleportEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * 修复触发事件的唯一入口
+ * <p>
+ * 只通过 {@link Mod.EventBusSubscriber} 注册一次。传送事件只监听
+ * {@link EntityTeleportEvent} 基类，再按最具体的子类型归类，
+ * 因此一次 /tp 不会同时作为传送指令和实体传送各处理一遍。
+ * 传送事件以最低优先级监听，其他模组取消或修改目标之后才接收，已取消的传送直接忽略。
+ * 每次触发再交给 {@link TriggerPolicy} 判断立即修复、延后修复还是跳过。
+ */
+@Mod.EventBusSubscriber(modid = ExperienceBarFixMod.MODID)
+public final class FixTriggerRouter {
+    
+    // 交给触发策略的判断依据，只在服务器主线程上使用，每次触发重新填写
+    private static final TriggerContext context = new TriggerContext();
+    
+    private FixTriggerRouter() {
+    }
+    
+    /**
+     * 处理所有实体传送 (/tp、/spreadplayers、末影珍珠、紫颂果等)
+     * <p>
+     * 接收已取消的事件只为计数，例如领地保护模组拦截的传送，不进入触发策略也不安排修复。
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST, receiveCanceled = true)
+    public static void onEntityTeleport(EntityTeleportEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            ConfigSnapshot config = Config.snapshot();
+            if (event.isCanceled()) {
+                if (config.enabled) {
+                    ExperienceBarFixer.recordCancelledTeleport();
+                }
+                return;
+            }
+            TriggerPolicy policy = config.triggerPolicy;
+            TriggerSource source = classify(event);
+            String from = policy.usesDimensions() ? dimensionId(player.level().dimension()) : null;
+            if (source == TriggerSource.TELEPORT_COMMAND) {
+                // 指令传送可能跨维度 (execute in ... run tp)，事件中没有目标世界，目标维度和距离按未知处理
+                route(config, player, context.set(source, from, null, Double.NaN));
+            } else {
+                // 末影珍珠、紫颂果等只在玩家所在的世界内传送
+                double distance = policy.usesDistance() ? distance(event) : Double.NaN;
+                route(config, player, context.set(source, from, from, distance));
+            }
+        }
+    }
+    
+    /**
+     * 处理维度变化 (下界、末地等)
+     */
+    @SubscribeEvent
+    public static void onPlayerChangeDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        ConfigSnapshot config = Config.snapshot();
+        if (wants(config, TriggerSource.DIMENSION_CHANGE) && event.getEntity() instanceof ServerPlayer player) {
+            boolean dimensions = config.triggerPolicy.usesDimensions();
+            route(config, player, context.set(TriggerSource.DIMENSION_CHANGE, 
+                dimensions ? dimensionId(event.getFrom()) : null, dimensions ? dimensionId(event.getTo()) : null, 
+                Double.NaN));
+        }
+    }
+    
+    /**
+     * 处理玩家重生
+     */
+    @SubscribeEvent
+    public static void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        ConfigSnapshot config = Config.snapshot();
+        if (wants(config, TriggerSource.RESPAWN) && event.getEntity() instanceof ServerPlayer player) {
+            // 重生事件中的玩家已经在重生点所在的维度，原来的维度未知
+            String to = config.triggerPolicy.usesDimensions() ? dimensionId(player.level().dimension()) : null;
+            route(config, player, context.set(TriggerSource.RESPAWN, null, to, Double.NaN));
+        }
+    }
+    
+    /**
+     * 按最具体的事件类型归类传送来源
+     */
+    static TriggerSource classify(EntityTeleportEvent event) {
+        if (event instanceof EntityTeleportEvent.TeleportCommand
+                || event instanceof EntityTeleportEvent.SpreadPlayersCommand) {
+            return TriggerSource.TELEPORT_COMMAND;
+        }
+        return TriggerSource.ENTITY_TELEPORT;
+    }
+    
+    /**
+     * 同一维度内传送的直线距离
+     */
+    private static double distance(EntityTeleportEvent event) {
+        double dx = event.getTargetX() - event.getPrevX();
+        double dy = event.getTargetY() - event.getPrevY();
+        double dz = event.getTargetZ() - event.getPrevZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    
+    private static String dimensionId(ResourceKey<Level> dimension) {
+        return dimension.location().toString();
+    }
+    
+    /**
+     * 经验条修复或任一 HUD 重新同步模块是否处理该来源
+     */
+    private static boolean wants(ConfigSnapshot config, TriggerSource source) {
+        return ((config.experienceSources | HudResyncRegistry.sources(config)) & source.bit()) != 0;
+    }
+    
+    private static void route(ConfigSnapshot config, ServerPlayer player, TriggerContext trigger) {
+        if (config.enabled) {
+            ExperienceBarFixer.requestFix(config, player, trigger.source(), config.triggerPolicy.decide(trigger));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.function.Consumer;
+
+/**
+ * 一种客户端 HUD 状态的重新同步
+ * <p>
+ * 传送、维度变化和重生导致经验条失去同步时，生命值、饥饿值、状态效果等 HUD 状态也可能受到影响。
+ * 模块通过 {@link HudResyncRegistry#register} 注册后与经验条修复共用同一次调度：
+ * 每刻对每名到期的玩家只处理一次，所有模块的数据包与经验数据包合并为一个数据包束发送。
+ * <p>
+ * 方法只在服务器主线程上调用。
+ */
+public interface HudResync {
+    
+    /**
+     * 日志和错误统计中使用的标识
+     */
+    String id();
+    
+    /**
+     * 是否启用，通常读取模块自己的配置开关
+     */
+    boolean isEnabled(ConfigSnapshot config);
+    
+    /**
+     * 需要重新同步的触发来源位掩码，见 {@link com.github.experiencebarfix.core.TriggerSource#bit()}
+     */
+    int sources(ConfigSnapshot config);
+    
+    /**
+     * 构建重新同步的数据包交给 {@code out}，不要直接发送
+     */
+    void stage(ServerPlayer player, Consumer<Packet<ClientGamePacketListener>> out);
+}
@@ -0,0 +1,190 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundPlayerAbilitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundSetHealthPacket;
+import net.minecraft.network.protocol.game.ClientboundUpdateMobEffectPacket;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.effect.MobEffectInstance;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * HUD 重新同步模块的注册表
+ * <p>
+ * 内置生命值与饥饿值、状态效果和玩家能力三个模块，各自有配置开关和触发来源；
+ * 其他模组可以在设置阶段注册自己的模块。经验条修复执行时调用 {@link #stage}，
+ * 模块的数据包与经验数据包一起交给 {@link FixPacketSender}，每名玩家只写出一个数据包束。
+ */
+public final class HudResyncRegistry {
+    
+    // 写时复制，热路径直接遍历数组
+    private static volatile HudResync[] modules = {BuiltIn.HEALTH, BuiltIn.EFFECTS, BuiltIn.ABILITIES};
+    
+    private static final Consumer<Packet<ClientGamePacketListener>> SENDER = FixPacketSender::add;
+    
+    private HudResyncRegistry() {
+    }
+    
+    /**
+     * 注册一个重新同步模块，标识重复时替换已有的模块
+     */
+    public static synchronized void register(HudResync module) {
+        HudResync[] current = modules;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id().equals(module.id())) {
+                HudResync[] replaced = current.clone();
+                replaced[i] = module;
+                modules = replaced;
+                return;
+            }
+        }
+        HudResync[] added = Arrays.copyOf(current, current.length + 1, HudResync[].class);
+        added[current.length] = module;
+        modules = added;
+    }
+    
+    /**
+     * 所有已启用模块关心的触发来源
+     */
+    static int sources(ConfigSnapshot config) {
+        int mask = 0;
+        for (HudResync module : modules) {
+            if (module.isEnabled(config)) {
+                mask |= module.sources(config);
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * 已启用模块的标识，用于状态输出
+     */
+    static String enabled(ConfigSnapshot config) {
+        StringBuilder ids = new StringBuilder();
+        for (HudResync module : modules) {
+            if (module.isEnabled(config)) {
+                ids.append(ids.isEmpty() ? "" : ", ").append(module.id());
+            }
+        }
+        return ids.toString();
+    }
+    
+    /**
+     * 为玩家添加所有匹配触发来源的模块的数据包，单个模块失败不影响其他模块
+     *
+     * @return 添加的数据包数量
+     */
+    static int stage(ServerPlayer player, int sources, ConfigSnapshot config) {
+        int staged = 0;
+        for (HudResync module : modules) {
+            if (!module.isEnabled(config) || (module.sources(config) & sources) == 0) {
+                continue;
+            }
+            int before = FixPacketSender.stagedCount();
+            try {
+                module.stage(player, SENDER);
+            } catch (Exception e) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ HUD 重新同步模块失败: 模块={}, 玩家={}, 错误={}", 
+                    module.id(), player.getGameProfile().getName(), e.getMessage());
+                ExperienceBarFixer.statistics().incrementError("HUD 重新同步失败: " + module.id());
+            }
+            staged += FixPacketSender.stagedCount() - before;
+        }
+        return staged;
+    }
+    
+    /**
+     * 内置模块
+     */
+    private enum BuiltIn implements HudResync {
+        
+        /** 生命值、饥饿值和饱和度 */
+        HEALTH("health") {
+            @Override
+            public boolean isEnabled(ConfigSnapshot config) {
+                return config.resyncHealth;
+            }
+            
+            @Override
+            public int sources(ConfigSnapshot config) {
+                return config.resyncHealthSources;
+            }
+            
+            @Override
+            public void stage(ServerPlayer player, Consumer<Packet<ClientGamePacketListener>> out) {
+                out.accept(new ClientboundSetHealthPacket(player.getHealth(), 
+                    player.getFoodData().getFoodLevel(), player.getFoodData().getSaturationLevel()));
+            }
+        },
+        
+        /** 当前的状态效果 */
+        EFFECTS("effects") {
+            @Override
+            public boolean isEnabled(ConfigSnapshot config) {
+                return config.resyncEffects;
+            }
+            
+            @Override
+            public int sources(ConfigSnapshot config) {
+                return config.resyncEffectsSources;
+            }
+            
+            @Override
+            public void stage(ServerPlayer player, Consumer<Packet<ClientGamePacketListener>> out) {
+                for (MobEffectInstance effect : player.getActiveEffects()) {
+                    out.accept(new ClientboundUpdateMobEffectPacket(player.getId(), effect));
+                }
+            }
+        },
+        
+        /** 飞行、无敌等玩家能力 */
+        ABILITIES("abilities") {
+            @Override
+            public boolean isEnabled(ConfigSnapshot config) {
+                return config.resyncAbilities;
+            }
+            
+            @Override
+            public int sources(ConfigSnapshot config) {
+                return config.resyncAbilitiesSources;
+            }
+            
+            @Override
+            public void stage(ServerPlayer player, Consumer<Packet<ClientGamePacketListener>> out) {
+                out.accept(new ClientboundPlayerAbilitiesPacket(player.getAbilities()));
+            }
+        };
+        
+        private final String id;
+        
+        BuiltIn(String id) {
+            this.id = id;
+        }
+        
+        @Override
+        public String id() {
+            return id;
+        }
+    }
+}
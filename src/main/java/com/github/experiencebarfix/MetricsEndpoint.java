@@ -0,0 +1,154 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.OpenMetricsWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内置的 OpenMetrics 监控端点
+ * <p>
+ * 使用 JDK 自带的 HTTP 服务器在 {@code /metrics} 路径输出修复器的所有统计数据，
+ * 请求在单独的守护线程上处理，只读取原子计数器，不会进入服务器主线程。
+ * 默认关闭，开启后默认只绑定本机地址。
+ */
+final class MetricsEndpoint {
+    
+    private static final String PATH = "/metrics";
+    
+    private static HttpServer server;
+    private static ExecutorService executor;
+    
+    // 当前绑定的地址和端口，配置未变化时不重启
+    private static String boundHost;
+    private static int boundPort;
+    
+    // 服务器运行期间为 true，配置重载只在此期间生效
+    private static boolean active;
+    
+    private MetricsEndpoint() {
+    }
+    
+    /**
+     * 服务器启动时按配置启动监控端点
+     */
+    static synchronized void start(ConfigSnapshot config) {
+        active = true;
+        apply(config);
+    }
+    
+    /**
+     * 配置重载后启动、停止或重新绑定监控端点
+     */
+    static synchronized void reload(ConfigSnapshot config) {
+        if (active) {
+            apply(config);
+        }
+    }
+    
+    /**
+     * 服务器停止时关闭监控端点
+     */
+    static synchronized void shutdown() {
+        active = false;
+        stop();
+    }
+    
+    private static void apply(ConfigSnapshot config) {
+        if (!config.metricsEnabled) {
+            stop();
+            return;
+        }
+        if (server != null && config.metricsHost.equals(boundHost) && config.metricsPort == boundPort) {
+            return;
+        }
+        
+        stop();
+        try {
+            HttpServer created = HttpServer.create(new InetSocketAddress(config.metricsHost, config.metricsPort), 0);
+            created.createContext(PATH, MetricsEndpoint::handle);
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ExperienceBarFix-Metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            created.setExecutor(executor);
+            created.start();
+            
+            server = created;
+            boundHost = config.metricsHost;
+            boundPort = config.metricsPort;
+            ExperienceBarFixMod.LOGGER.info("✓ 监控端点已启动: http://{}:{}{}", boundHost, boundPort, PATH);
+        } catch (IOException | RuntimeException e) {
+            ExperienceBarFixMod.LOGGER.error("❌ 无法启动监控端点 {}:{}: {}", 
+                config.metricsHost, config.metricsPort, e.getMessage());
+            stop();
+        }
+    }
+    
+    private static void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+            ExperienceBarFixMod.LOGGER.info("✓ 监控端点已停止");
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        boundHost = null;
+        boundPort = 0;
+    }
+    
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            
+            byte[] body;
+            try {
+                OpenMetricsWriter writer = new OpenMetricsWriter();
+                ExperienceBarFixer.writeMetrics(writer);
+                body = writer.finish().getBytes(StandardCharsets.UTF_8);
+            } catch (RuntimeException e) {
+                ExperienceBarFixMod.LOGGER.warn("⚠️ 输出监控数据时发生错误: {}", e.getMessage());
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", OpenMetricsWriter.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
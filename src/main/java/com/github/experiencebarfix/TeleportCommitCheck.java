@@ -0,0 +1,132 @@
+/*
+ * Experience Bar Fix - Fixes experience bar disappearing after teleportation in Minecraft 1.20.1
+ * Copyright (C) 2025 Experience Bar Fix Team
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.experiencebarfix;
+
+import com.github.experiencebarfix.core.TriggerPolicy;
+import com.github.experiencebarfix.core.TriggerSource;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 传送落地检查：等到刻结束时再确认传送确实改变了玩家的位置或世界
+ * <p>
+ * 传送事件在传送执行之前触发，即使没有被取消，传送也可能没有发生，
+ * 例如紫颂果找不到落脚点，或其他模组把目标改回了原地。
+ * 接收时记录玩家当时所在的世界和坐标，刻结束时与玩家的当前状态比较，
+ * 只有确实移动了的传送才交给调度器。
+ * <p>
+ * 只保存玩家 UUID 和世界引用，不持有玩家对象；只在服务器主线程上使用。
+ */
+final class TeleportCommitCheck {
+    
+    // 坐标变化不超过约 0.001 格视为原地
+    private static final double MOVED_DISTANCE_SQR = 1.0E-6;
+    
+    /**
+     * 检查完成后的处理
+     */
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * @param player 仍在线的玩家
+         * @param moved 玩家的位置或世界是否已经改变
+         * @param tick 收到传送事件时的游戏刻
+         */
+        void accept(ServerPlayer player, TriggerSource source, TriggerPolicy.Rule rule, 
+                    long receivedNanos, int tick, boolean moved);
+    }
+    
+    private UUID[] ids = new UUID[16];
+    private Level[] levels = new Level[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private TriggerSource[] sources = new TriggerSource[16];
+    private TriggerPolicy.Rule[] rules = new TriggerPolicy.Rule[16];
+    private long[] receivedNanos = new long[16];
+    private int[] ticks = new int[16];
+    private int size;
+    
+    /**
+     * 记录一次尚未执行的传送，必须在传送执行之前调用
+     */
+    void add(ServerPlayer player, TriggerSource source, TriggerPolicy.Rule rule, long received, int tick) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            rules = Arrays.copyOf(rules, capacity);
+            receivedNanos = Arrays.copyOf(receivedNanos, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+        }
+        ids[size] = player.getUUID();
+        levels[size] = player.level();
+        xs[size] = player.getX();
+        ys[size] = player.getY();
+        zs[size] = player.getZ();
+        sources[size] = source;
+        rules[size] = rule;
+        receivedNanos[size] = received;
+        ticks[size] = tick;
+        size++;
+    }
+    
+    /**
+     * 按接收顺序检查所有记录的传送并清空；已离线的玩家直接丢弃
+     * <p>
+     * 同一玩家在一刻内的多次传送各自与接收时的位置比较，
+     * 后一次的出发点已经是前一次的落点。
+     */
+    void drain(MinecraftServer server, Handler handler) {
+        if (size == 0) {
+            return;
+        }
+        // 处理期间不会再有传送事件加入；即使加入，它的传送也已在处理返回之前执行完毕
+        for (int i = 0; i < size; i++) {
+            ServerPlayer player = server.getPlayerList().getPlayer(ids[i]);
+            if (player != null && !player.hasDisconnected()) {
+                double dx = player.getX() - xs[i];
+                double dy = player.getY() - ys[i];
+                double dz = player.getZ() - zs[i];
+                boolean moved = player.level() != levels[i] || dx * dx + dy * dy + dz * dz > MOVED_DISTANCE_SQR;
+                handler.accept(player, sources[i], rules[i], receivedNanos[i], ticks[i], moved);
+            }
+        }
+        clear();
+    }
+    
+    /**
+     * 丢弃所有尚未检查的传送，例如服务器停止时
+     */
+    void clear() {
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(levels, 0, size, null);
+        Arrays.fill(sources, 0, size, null);
+        Arrays.fill(rules, 0, size, null);
+        size = 0;
+    }
+}